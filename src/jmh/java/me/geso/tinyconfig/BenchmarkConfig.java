@@ -0,0 +1,63 @@
+package me.geso.tinyconfig;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration model of the generated documents. It has 145 overridable leaves.
+ */
+@TinyConfig
+@Data
+public class BenchmarkConfig {
+    private String name;
+    private int port;
+    private boolean enabled;
+    private double ratio;
+    private long timeout;
+    private Section a;
+    private Section b;
+    private Section c;
+    private Section d;
+    private Map<String, List<Entry>> groups;
+
+    @Data
+    public static class Section {
+        private String name;
+        private int port;
+        private boolean enabled;
+        private double ratio;
+        private long timeout;
+        private SubSection x;
+        private SubSection y;
+    }
+
+    @Data
+    public static class SubSection {
+        private String name;
+        private int port;
+        private boolean enabled;
+        private double ratio;
+        private long timeout;
+        private Leaf p;
+        private Leaf q;
+    }
+
+    @Data
+    public static class Leaf {
+        private String name;
+        private int port;
+        private boolean enabled;
+        private double ratio;
+        private long timeout;
+    }
+
+    @Data
+    public static class Entry {
+        private String path;
+        private String target;
+        private int weight;
+        private boolean enabled;
+    }
+}
@@ -0,0 +1,90 @@
+package me.geso.tinyconfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of a single {@link ConfigReader} shared by the benchmark threads.
+ * Run it with increasing thread counts to see how reads scale with cores.
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='ConcurrentReadBenchmark -t 1'
+ * ./gradlew jmh -PjmhArgs='ConcurrentReadBenchmark -t 4'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentReadBenchmark {
+    /**
+     * Number of entries in the `groups` lists.
+     */
+    @Param({"100"})
+    public int entries;
+
+    /**
+     * Number of `!file` includes the entries are split into. 0 to inline them.
+     */
+    @Param({"0", "16"})
+    public int includes;
+
+    private Path directory;
+    private List<String> overriddenProperties;
+    private ConfigReader reader;
+    private ConfigReader streamingReader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tinyconfig-bench");
+        Path config = ConfigGenerator.generate(directory, entries, 4, includes);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+        overriddenProperties = ConfigGenerator.setOverrides(10);
+
+        reader = ConfigReaderBuilder.create().build();
+        streamingReader = ConfigReaderBuilder.create()
+                .setStreaming(true)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        overriddenProperties.forEach(System::clearProperty);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BenchmarkConfig read() throws IOException {
+        return reader.read(BenchmarkConfig.class, "bench");
+    }
+
+    @Benchmark
+    public BenchmarkConfig readStreaming() throws IOException {
+        return streamingReader.read(BenchmarkConfig.class, "bench");
+    }
+}
@@ -0,0 +1,108 @@
+package me.geso.tinyconfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates YAML documents for {@link BenchmarkConfig}.
+ */
+class ConfigGenerator {
+    private static final String[] SECTIONS = {"a", "b", "c", "d"};
+    private static final String[] SUB_SECTIONS = {"x", "y"};
+    private static final String[] LEAVES = {"p", "q"};
+
+    private ConfigGenerator() {
+    }
+
+    /**
+     * Write the document and its includes into the directory.
+     *
+     * @param entries  number of entries in `groups`
+     * @param depth    nesting depth of the sections, from 1 to 4
+     * @param includes number of files the groups are split into. 0 to inline all groups.
+     * @return path of the root document
+     */
+    static Path generate(Path directory, int entries, int depth, int includes) throws IOException {
+        StringBuilder root = new StringBuilder("---\n");
+        scalars(root, "", "root");
+        if (depth > 1) {
+            for (String section : SECTIONS) {
+                root.append(section).append(":\n");
+                scalars(root, "  ", section);
+                if (depth > 2) {
+                    for (String subSection : SUB_SECTIONS) {
+                        root.append("  ").append(subSection).append(":\n");
+                        scalars(root, "    ", section + subSection);
+                        if (depth > 3) {
+                            for (String leaf : LEAVES) {
+                                root.append("    ").append(leaf).append(":\n");
+                                scalars(root, "      ", section + subSection + leaf);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        root.append("groups:\n");
+        int groups = Math.max(includes, 1);
+        for (int group = 0; group < groups; group++) {
+            StringBuilder body = new StringBuilder();
+            for (int i = group; i < entries; i += groups) {
+                body.append("- path: /api/v1/group").append(group).append("/item").append(i).append('\n')
+                        .append("  target: \"http://backend-").append(i % 7).append(".internal:8080\"\n")
+                        .append("  weight: ").append(i).append('\n')
+                        .append("  enabled: ").append(i % 2 == 0).append('\n');
+            }
+            if (includes == 0) {
+                root.append("  g").append(group).append(":\n");
+                for (String line : body.toString().split("\n")) {
+                    root.append("    ").append(line).append('\n');
+                }
+            } else {
+                Path fragment = directory.resolve("group" + group + ".yml");
+                write(fragment, "---\n" + (body.length() == 0 ? "[]\n" : body));
+                root.append("  g").append(group).append(": !file ").append(fragment).append('\n');
+            }
+        }
+
+        Path path = directory.resolve("config.yml");
+        write(path, root.toString());
+        return path;
+    }
+
+    /**
+     * Set system properties which overwrite the first leaves of {@link BenchmarkConfig}.
+     *
+     * @return names of the properties
+     */
+    static List<String> setOverrides(int overrides) {
+        List<BindingPlan.Leaf> leaves = BindingPlan.of(BenchmarkConfig.class).getLeaves();
+        if (overrides > leaves.size()) {
+            throw new IllegalArgumentException("BenchmarkConfig has only " + leaves.size() + " leaves");
+        }
+        List<String> names = new ArrayList<>();
+        for (BindingPlan.Leaf leaf : leaves.subList(0, overrides)) {
+            String value = leaf.getType() == boolean.class ? "true" : leaf.getType() == String.class ? "overridden" : "42";
+            System.setProperty(leaf.getPropertyName(), value);
+            names.add(leaf.getPropertyName());
+        }
+        return names;
+    }
+
+    private static void scalars(StringBuilder builder, String indent, String name) {
+        builder.append(indent).append("name: ").append(name).append('\n')
+                .append(indent).append("port: 8080\n")
+                .append(indent).append("enabled: true\n")
+                .append(indent).append("ratio: 0.5\n")
+                .append(indent).append("timeout: 3000\n");
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
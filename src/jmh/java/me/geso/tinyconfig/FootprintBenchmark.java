@@ -0,0 +1,118 @@
+package me.geso.tinyconfig;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the heap retained by the loaded tree and the bound configuration, with and without
+ * {@link ConfigReaderBuilder#setCompactTree(boolean)}.
+ *
+ * <p>The result of each read is kept until the next one, and the heap used after a full GC, less the heap used
+ * before the read, is reported as the `retainedKilobytes` counter.</p>
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='FootprintBenchmark'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseSerialGC")
+public class FootprintBenchmark {
+    /**
+     * Number of entries in the `groups` lists.
+     */
+    @Param({"10000", "100000"})
+    public int entries;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private Path directory;
+    private DefaultConfigReader reader;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private long baseline;
+    private Object retained;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        /**
+         * The heap retained by the last read in the iteration.
+         */
+        public long retainedKilobytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tinyconfig-bench");
+        Path config = ConfigGenerator.generate(directory, entries, 4, 16);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+
+        reader = (DefaultConfigReader) ConfigReaderBuilder.create()
+                .setCompactTree(compact)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void release() {
+        retained = null;
+        System.gc();
+        baseline = memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The tree kept by {@link ConfigHandle} and {@link ConfigSession}.
+     */
+    @Benchmark
+    public void tree(Retained counter) throws IOException {
+        retained = reader.readInternal("bench").getTree();
+        record(counter);
+    }
+
+    /**
+     * The bound configuration.
+     */
+    @Benchmark
+    public void read(Retained counter) throws IOException {
+        retained = reader.read(BenchmarkConfig.class, "bench");
+        record(counter);
+    }
+
+    private void record(Retained counter) {
+        System.gc();
+        counter.retainedKilobytes = (memory.getHeapMemoryUsage().getUsed() - baseline) / 1024;
+    }
+}
@@ -0,0 +1,133 @@
+package me.geso.tinyconfig;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the peak heap usage of {@link ConfigReader#read} with and without streaming.
+ *
+ * <p>Each read starts after a full GC, and the peak usage of the heap pools is reported as
+ * the `peakHeapKilobytes` counter. The young generation is kept small, so that the peak follows
+ * the live objects rather than the garbage.</p>
+ *
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='PeakMemoryBenchmark'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseSerialGC", "-Xmn4m"})
+public class PeakMemoryBenchmark {
+    /**
+     * Number of entries in the `groups` lists.
+     */
+    @Param({"10000", "100000"})
+    public int entries;
+
+    /**
+     * Number of `!file` includes the entries are split into. 0 to inline them.
+     */
+    @Param({"0", "16"})
+    public int includes;
+
+    private Path directory;
+    private List<String> overriddenProperties;
+    private ConfigReader reader;
+    private ConfigReader streamingReader;
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PeakHeap {
+        /**
+         * The peak of the last read in the iteration.
+         */
+        public long peakHeapKilobytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tinyconfig-bench");
+        Path config = ConfigGenerator.generate(directory, entries, 4, includes);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+        overriddenProperties = ConfigGenerator.setOverrides(100);
+
+        reader = ConfigReaderBuilder.create().build();
+        streamingReader = ConfigReaderBuilder.create()
+                .setStreaming(true)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        overriddenProperties.forEach(System::clearProperty);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetPeak() {
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /**
+     * Loading the whole tree, then binding it.
+     */
+    @Benchmark
+    public BenchmarkConfig read(PeakHeap peakHeap) throws IOException {
+        BenchmarkConfig config = reader.read(BenchmarkConfig.class, "bench");
+        record(peakHeap);
+        return config;
+    }
+
+    /**
+     * Binding while parsing.
+     */
+    @Benchmark
+    public BenchmarkConfig readStreaming(PeakHeap peakHeap) throws IOException {
+        BenchmarkConfig config = streamingReader.read(BenchmarkConfig.class, "bench");
+        record(peakHeap);
+        return config;
+    }
+
+    private void record(PeakHeap peakHeap) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        peakHeap.peakHeapKilobytes = peak / 1024;
+    }
+}
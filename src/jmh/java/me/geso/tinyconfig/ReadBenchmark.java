@@ -0,0 +1,182 @@
+package me.geso.tinyconfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@link ConfigReader#read} phase by phase.
+ *
+ * <pre>
+ * ./gradlew jmh
+ * ./gradlew jmh -PjmhArgs='ReadBenchmark.bind -p entries=10000'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+    /**
+     * Number of entries in the `groups` lists.
+     */
+    @Param({"100", "10000"})
+    public int entries;
+
+    /**
+     * Nesting depth of the sections, from 1 to 4.
+     */
+    @Param({"1", "4"})
+    public int depth;
+
+    /**
+     * Number of `!file` includes the entries are split into. 0 to inline them.
+     */
+    @Param({"0", "16"})
+    public int includes;
+
+    /**
+     * Number of leaves overwritten by system properties.
+     */
+    @Param({"0", "100"})
+    public int overrides;
+
+    private Path directory;
+    private List<String> overriddenProperties;
+    private DefaultConfigReader reader;
+    private Object loaded;
+    private List<PathValue> pathValues;
+    private Object rewritten;
+    private ConfigBinder<BenchmarkConfig> binder;
+    private ConfigReader snapshotReader;
+    private ConfigReader streamingReader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tinyconfig-bench");
+        Path config = ConfigGenerator.generate(directory, entries, depth, includes);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+        overriddenProperties = ConfigGenerator.setOverrides(overrides);
+
+        reader = (DefaultConfigReader) ConfigReaderBuilder.create().build();
+        loaded = reader.readInternal("bench").getTree();
+        pathValues = reader.scanValues(BenchmarkConfig.class);
+        rewritten = reader.rewriteValues(loaded, pathValues);
+        binder = ConfigBinders.find(BenchmarkConfig.class);
+
+        snapshotReader = ConfigReaderBuilder.create()
+                .setSnapshotDirectory(directory.resolve("snapshots"))
+                .build();
+        // Write the snapshot.
+        snapshotReader.read(BenchmarkConfig.class, "bench");
+
+        streamingReader = ConfigReaderBuilder.create()
+                .setStreaming(true)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        overriddenProperties.forEach(System::clearProperty);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Reading and parsing the YAML files, including `!file` includes.
+     */
+    @Benchmark
+    public Object load() throws IOException {
+        return reader.readInternal("bench").getTree();
+    }
+
+    /**
+     * Looking up the overrides of all leaves.
+     */
+    @Benchmark
+    public List<PathValue> scanValues() {
+        return reader.scanValues(BenchmarkConfig.class);
+    }
+
+    /**
+     * Applying the overrides to the loaded tree.
+     */
+    @Benchmark
+    public Object rewriteValues() {
+        return reader.rewriteValues(loaded, pathValues);
+    }
+
+    /**
+     * Binding the rewritten tree to the configuration class by Jackson.
+     */
+    @Benchmark
+    public BenchmarkConfig bind() throws IOException {
+        return reader.bindTree(rewritten, BenchmarkConfig.class);
+    }
+
+    /**
+     * Binding the loaded tree by the generated binder, which applies the overrides by itself.
+     * Compare with {@link #rewriteValues()} + {@link #bind()}.
+     */
+    @Benchmark
+    public BenchmarkConfig bindGenerated() throws IOException {
+        return reader.bindGenerated(loaded, pathValues, binder);
+    }
+
+    /**
+     * All phases.
+     */
+    @Benchmark
+    public BenchmarkConfig read() throws IOException {
+        return reader.read(BenchmarkConfig.class, "bench");
+    }
+
+    /**
+     * Lazy read which binds one section, like a process which uses a part of the configuration.
+     * Compare with {@link #read()}.
+     */
+    @Benchmark
+    public BenchmarkConfig.Section readLazy() throws IOException {
+        return reader.readLazy(BenchmarkConfig.class, "bench").getA();
+    }
+
+    /**
+     * All phases in streaming mode, which binds while parsing. Compare with {@link #read()}.
+     * See {@link PeakMemoryBenchmark} for the peak heap usage.
+     */
+    @Benchmark
+    public BenchmarkConfig readStreaming() throws IOException {
+        return streamingReader.read(BenchmarkConfig.class, "bench");
+    }
+
+    /**
+     * Warm start from the snapshot: checking the files, reading the snapshot and binding.
+     */
+    @Benchmark
+    public BenchmarkConfig readSnapshot() throws IOException {
+        return snapshotReader.read(BenchmarkConfig.class, "bench");
+    }
+}
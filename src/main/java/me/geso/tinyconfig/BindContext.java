@@ -0,0 +1,434 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * State of a {@link ConfigBinder} at a node of the configuration tree: the overrides under the node and
+ * the conversions used by the generated code.
+ *
+ * <p>Overrides are applied while binding, so the tree loaded by SnakeYAML is never copied. Scalars are
+ * converted the same way as Jackson does. Other types are converted by the {@link ObjectMapper}.</p>
+ */
+public final class BindContext {
+    private final ObjectMapper objectMapper;
+    // name -> String value of the leaf, or Map of the overrides under the child.
+    private final Map<String, Object> overrides;
+    private final BindContext parent;
+    private final String name;
+    // top-level property name -> overrides of the section. null unless the root of the lazy binding.
+    private final Function<String, List<PathValue>> sections;
+
+    private BindContext(ObjectMapper objectMapper, Map<String, Object> overrides, BindContext parent, String name,
+                        Function<String, List<PathValue>> sections) {
+        this.objectMapper = objectMapper;
+        this.overrides = overrides;
+        this.parent = parent;
+        this.name = name;
+        this.sections = sections;
+    }
+
+    static BindContext create(ObjectMapper objectMapper, List<PathValue> pathValues) {
+        return new BindContext(objectMapper, toOverrideTree(pathValues), null, null, null);
+    }
+
+    /**
+     * Create the root context of {@link ConfigBinder#bindLazy}.
+     *
+     * @param pathValues overrides of the top-level leaves.
+     * @param sections   resolves the overrides under the top-level property when its section is bound.
+     */
+    static BindContext createLazy(ObjectMapper objectMapper, List<PathValue> pathValues,
+                                  Function<String, List<PathValue>> sections) {
+        return new BindContext(objectMapper, toOverrideTree(pathValues), null, null, sections);
+    }
+
+    /**
+     * @return name -> String value of the leaf, or Map of the overrides under the child.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> toOverrideTree(List<PathValue> pathValues) {
+        Map<String, Object> overrides = pathValues.isEmpty() ? Collections.emptyMap() : new HashMap<>();
+        for (PathValue pathValue : pathValues) {
+            Map<String, Object> current = overrides;
+            List<String> path = pathValue.getPath();
+            for (int i = 0; i < path.size() - 1; i++) {
+                current = (Map<String, Object>) current.computeIfAbsent(path.get(i), key -> new HashMap<>());
+            }
+            current.put(path.get(path.size() - 1), pathValue.getValue());
+        }
+        return overrides;
+    }
+
+    /**
+     * Get the context to bind the top-level section of the lazy binding. The overrides of the section
+     * are resolved now. Other contexts return themselves.
+     *
+     * @param name name of the top-level property.
+     */
+    public BindContext section(String name) {
+        if (sections == null) {
+            return this;
+        }
+        return new BindContext(objectMapper, toOverrideTree(sections.apply(name)), null, null, null);
+    }
+
+    /**
+     * Get the mapping of the node.
+     *
+     * @return the mapping, or null if the tree is null.
+     */
+    public Map<?, ?> toMap(Object tree, Class<?> type) throws JsonMappingException {
+        if (tree == null || tree instanceof Map) {
+            return (Map<?, ?>) tree;
+        } else if (tree instanceof Set) {
+            // `!!set` is a mapping with null values.
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Object key : (Set<?>) tree) {
+                map.put(key, null);
+            }
+            return map;
+        }
+        throw error(type, tree);
+    }
+
+    /**
+     * @return true if the mapping has the key, or there are overrides for it. Overrides of list elements
+     * don't count, since they apply only to the existing elements.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean has(Map<?, ?> map, String name) {
+        if (map.containsKey(name)) {
+            return true;
+        }
+        Object override = overrides.get(name);
+        return override instanceof String || override instanceof Map && !isIndexed((Map<String, Object>) override);
+    }
+
+    /**
+     * Bind the child mapping by the binder.
+     */
+    public <V> V bind(Map<?, ?> map, String name, ConfigBinder<V> binder) throws IOException {
+        Object value = map.get(name);
+        if (value == null) {
+            if (map.containsKey(name)) {
+                return null;
+            }
+            value = Collections.emptyMap();
+        }
+        return binder.bind(value, child(name));
+    }
+
+    /**
+     * Convert the child by the {@link ObjectMapper}. Used for the types without generated binders.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V convert(Map<?, ?> map, String name, TypeReference<V> type) throws IOException {
+        Object value = map.get(name);
+        Object childOverrides = overrides.get(name);
+        if (childOverrides instanceof Map) {
+            if (value == null && !map.containsKey(name) && !isIndexed((Map<String, Object>) childOverrides)) {
+                value = Collections.emptyMap();
+            }
+            value = applyOverrides(value, (Map<String, Object>) childOverrides);
+        } else if (childOverrides instanceof String) {
+            // e.g. the path of a data file.
+            value = childOverrides;
+        }
+        if (value == null) {
+            return null;
+        }
+        JsonNode tree = YamlTreeConverter.toTree(value);
+        return objectMapper.readValue(objectMapper.treeAsTokens(tree), type);
+    }
+
+    public String getString(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return toTree(value).asText();
+        }
+        JsonNode node = toTree(value);
+        if (node.isValueNode()) {
+            return node.asText();
+        }
+        throw error(name, String.class, value);
+    }
+
+    public Boolean getBoolean(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null || value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Integer) {
+            return (Integer) value != 0;
+        }
+        String text = getText(value);
+        if (text != null) {
+            text = text.trim();
+            if ("true".equals(text) || "True".equals(text)) {
+                return Boolean.TRUE;
+            } else if ("false".equals(text) || "False".equals(text)) {
+                return Boolean.FALSE;
+            } else if (text.isEmpty() || "null".equals(text)) {
+                return null;
+            }
+        }
+        throw error(name, Boolean.class, value);
+    }
+
+    public Character getCharacter(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null) {
+            return null;
+        } else if (value instanceof Integer && (Integer) value >= 0 && (Integer) value <= Character.MAX_VALUE) {
+            return (char) (int) (Integer) value;
+        }
+        String text = getText(value);
+        if (text != null) {
+            if (text.length() == 1) {
+                return text.charAt(0);
+            } else if (text.isEmpty()) {
+                return null;
+            }
+        }
+        throw error(name, Character.class, value);
+    }
+
+    public Byte getByte(Map<?, ?> map, String name) throws JsonMappingException {
+        Integer value = getInteger(map, name);
+        if (value == null) {
+            return null;
+        } else if (value < Byte.MIN_VALUE || value > 255) {
+            throw error(name, Byte.class, value);
+        }
+        return value.byteValue();
+    }
+
+    public Short getShort(Map<?, ?> map, String name) throws JsonMappingException {
+        Integer value = getInteger(map, name);
+        if (value == null) {
+            return null;
+        } else if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw error(name, Short.class, value);
+        }
+        return value.shortValue();
+    }
+
+    public Integer getInteger(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        } else if (isNumber(value)) {
+            return ((Number) value).intValue();
+        }
+        String text = getNumberText(value);
+        if (text != null) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(text);
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw error(name, Integer.class, value);
+    }
+
+    public Long getLong(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null || value instanceof Long) {
+            return (Long) value;
+        } else if (isNumber(value)) {
+            return ((Number) value).longValue();
+        }
+        String text = getNumberText(value);
+        if (text != null) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Long.valueOf(text);
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw error(name, Long.class, value);
+    }
+
+    public Float getFloat(Map<?, ?> map, String name) throws JsonMappingException {
+        Double value = getDouble(map, name);
+        return value == null ? null : value.floatValue();
+    }
+
+    public Double getDouble(Map<?, ?> map, String name) throws JsonMappingException {
+        Object value = get(map, name);
+        if (value == null) {
+            return null;
+        } else if (isNumber(value)) {
+            return ((Number) value).doubleValue();
+        }
+        String text = getNumberText(value);
+        if (text != null) {
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Double.valueOf(text);
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw error(name, Double.class, value);
+    }
+
+    private Object get(Map<?, ?> map, String name) {
+        Object override = overrides.get(name);
+        if (override instanceof String) {
+            return override;
+        }
+        return map.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BindContext child(String name) {
+        Object childOverrides = overrides.get(name);
+        return new BindContext(objectMapper,
+                childOverrides instanceof Map ? (Map<String, Object>) childOverrides : Collections.emptyMap(),
+                this,
+                name,
+                null);
+    }
+
+    // Special floats are read back as text, like YamlTreeConverter does.
+    private static boolean isNumber(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof BigInteger
+                || value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite();
+    }
+
+    private static String getNumberText(Object value) {
+        String text = getText(value);
+        if (text == null) {
+            return null;
+        }
+        text = text.trim();
+        return "null".equals(text) ? "" : text;
+    }
+
+    private static String getText(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        } else if (value instanceof Boolean || value instanceof Map || value instanceof Iterable) {
+            return null;
+        }
+        return toTree(value).textValue();
+    }
+
+    private static JsonNode toTree(Object value) {
+        return YamlTreeConverter.toTree(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object applyOverrides(Object value, Map<String, Object> overrides) {
+        if (value instanceof List) {
+            return applyOverrides((List<?>) value, overrides);
+        } else if (!(value instanceof Map)) {
+            return value;
+        }
+        Map<Object, Object> copy = new LinkedHashMap<>((Map<?, ?>) value);
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue() instanceof String) {
+                copy.put(key, entry.getValue());
+            } else {
+                Object child = copy.get(key);
+                if (child == null) {
+                    if (copy.containsKey(key) || isIndexed((Map<String, Object>) entry.getValue())) {
+                        continue;
+                    }
+                    child = Collections.emptyMap();
+                }
+                copy.put(key, applyOverrides(child, (Map<String, Object>) entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Elements are overridden by their indexes. Overrides out of the list are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object applyOverrides(List<?> value, Map<String, Object> overrides) {
+        List<Object> copy = new ArrayList<>(value);
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            int index = DefaultConfigReader.toIndex(entry.getKey(), copy.size());
+            if (index < 0) {
+                continue;
+            }
+            if (entry.getValue() instanceof String) {
+                copy.set(index, entry.getValue());
+            } else {
+                copy.set(index, applyOverrides(copy.get(index), (Map<String, Object>) entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if the overrides are for the elements of a list. Overrides don't create lists.
+     */
+    static boolean isIndexed(Map<String, Object> overrides) {
+        for (String key : overrides.keySet()) {
+            if (DefaultConfigReader.toIndex(key, Integer.MAX_VALUE) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getPath(String child) {
+        StringBuilder builder = new StringBuilder();
+        appendPath(builder);
+        if (builder.length() > 0) {
+            builder.append('.');
+        }
+        return builder.append(child).toString();
+    }
+
+    private void appendPath(StringBuilder builder) {
+        if (parent != null) {
+            parent.appendPath(builder);
+            if (builder.length() > 0) {
+                builder.append('.');
+            }
+            builder.append(name);
+        }
+    }
+
+    private JsonMappingException error(String child, Class<?> type, Object value) {
+        return new JsonMappingException((Closeable) null,
+                "Can not bind `" + getPath(child) + "` to " + type.getName() + ": " + value);
+    }
+
+    private JsonMappingException error(Class<?> type, Object value) {
+        StringBuilder path = new StringBuilder();
+        appendPath(path);
+        return new JsonMappingException((Closeable) null,
+                "Can not bind `" + path + "` to " + type.getName() + ": not a mapping: " + value);
+    }
+}
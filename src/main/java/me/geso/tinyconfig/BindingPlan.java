@@ -0,0 +1,431 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Primitives;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Overridable leaf properties of a configuration class.
+ *
+ * <p>The plan is computed once per class and cached. It is safe to share between
+ * threads and readers.</p>
+ *
+ * <p>Elements of {@link List} and {@link Map} properties are leaves with {@link #ELEMENT} in their paths,
+ * e.g. `servers.*.host`. Their values are found by the prefixes of the names, e.g. `SERVERS_0_HOST`.</p>
+ */
+@Slf4j
+public final class BindingPlan {
+    private static final ClassValue<BindingPlan> PLANS = new ClassValue<BindingPlan>() {
+        @Override
+        protected BindingPlan computeValue(Class<?> type) {
+            ConfigBinder<?> binder = ConfigBinders.find(type);
+            if (binder != null) {
+                return binder.getPlan();
+            }
+            return scan(type);
+        }
+    };
+
+    /**
+     * Path segment of the index or the key of a collection element.
+     */
+    public static final String ELEMENT = "*";
+
+    private static final ValueLoader ENV_NAMING = new EnvValueLoader();
+    private static final ValueLoader PROPERTY_NAMING = new PropertyValueLoader();
+
+    private final Class<?> type;
+    private final List<Leaf> leaves;
+    // name -> leaf indexes, per ValueLoader class.
+    private final ConcurrentMap<Class<?>, Map<String, int[]>> nameIndexes = new ConcurrentHashMap<>();
+    // name patterns of the element leaves, per ValueLoader class.
+    private final ConcurrentMap<Class<?>, ElementIndex> elementIndexes = new ConcurrentHashMap<>();
+    // top-level property name -> plan of the leaves under it.
+    private final ConcurrentMap<String, BindingPlan> sections = new ConcurrentHashMap<>();
+
+    private BindingPlan(Class<?> type, List<Leaf> leaves) {
+        this.type = type;
+        this.leaves = leaves;
+    }
+
+    /**
+     * Get the plan for the configuration class. The plan of the generated {@link ConfigBinder} is used if exists.
+     */
+    public static BindingPlan of(Class<?> klass) {
+        return PLANS.get(klass);
+    }
+
+    /**
+     * Compute the plan by {@link Introspector}.
+     */
+    static BindingPlan scan(Class<?> klass) {
+        return new BindingPlan(klass, new Scanner().scan(klass));
+    }
+
+    /**
+     * Create the builder of the plan. Used by the generated {@link ConfigBinder}s.
+     */
+    public static Builder builder(Class<?> type) {
+        return new Builder(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Leaf properties which can be overwritten by {@link ValueLoader}s, in declaration order.
+     */
+    public List<Leaf> getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Get the index from the names of the leaves in the loader to the leaf positions.
+     */
+    Map<String, int[]> getNameIndex(ValueLoader valueLoader) {
+        // computeIfAbsent locks the bin even if the key exists, which serializes concurrent reads on Java 8.
+        Map<String, int[]> nameIndex = nameIndexes.get(valueLoader.getClass());
+        if (nameIndex != null) {
+            return nameIndex;
+        }
+        return nameIndexes.computeIfAbsent(valueLoader.getClass(), key -> {
+            Map<String, int[]> index = new HashMap<>();
+            for (int i = 0; i < leaves.size(); i++) {
+                if (leaves.get(i).isElement()) {
+                    continue;
+                }
+                String name = valueLoader.getName(leaves.get(i));
+                int[] positions = index.get(name);
+                if (positions == null) {
+                    positions = new int[]{i};
+                } else {
+                    // Different paths can share the same name. e.g. `fooBar` and `foo.bar` in the environment.
+                    positions = Arrays.copyOf(positions, positions.length + 1);
+                    positions[positions.length - 1] = i;
+                }
+                index.put(name, positions);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Get the name patterns of the element leaves in the loader.
+     */
+    ElementIndex getElementIndex(ValueLoader valueLoader) {
+        ElementIndex elementIndex = elementIndexes.get(valueLoader.getClass());
+        if (elementIndex != null) {
+            return elementIndex;
+        }
+        return elementIndexes.computeIfAbsent(valueLoader.getClass(), key -> new ElementIndex(leaves, valueLoader));
+    }
+
+    /**
+     * Get the plan of the leaves under the top-level property, or of the top-level leaves if the name is empty.
+     * Used to resolve the overrides of a section when it's bound.
+     */
+    BindingPlan getSection(String name) {
+        BindingPlan section = sections.get(name);
+        if (section != null) {
+            return section;
+        }
+        return sections.computeIfAbsent(name, key -> {
+            List<Leaf> sectionLeaves = new ArrayList<>();
+            for (Leaf leaf : leaves) {
+                List<String> path = leaf.getPath();
+                if (name.isEmpty() ? path.size() == 1 : path.size() > 1 && path.get(0).equals(name)) {
+                    sectionLeaves.add(leaf);
+                }
+            }
+            return new BindingPlan(type, ImmutableList.copyOf(sectionLeaves));
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "BindingPlan(" + type.getName() + ", " + leaves.size() + " leaves)";
+    }
+
+    /**
+     * A scalar property reachable from the configuration class.
+     */
+    @Value
+    public static class Leaf {
+        private List<String> path;
+        private String envName;
+        private String propertyName;
+        /**
+         * Parameter type of the setter method.
+         */
+        private Class<?> type;
+
+        Leaf(List<String> path, Class<?> type) {
+            this.path = path;
+            this.envName = ENV_NAMING.getName(path);
+            this.propertyName = PROPERTY_NAMING.getName(path);
+            this.type = type;
+        }
+
+        /**
+         * @return true if the path has {@link #ELEMENT}.
+         */
+        public boolean isElement() {
+            return path.contains(ELEMENT);
+        }
+    }
+
+    /**
+     * Name patterns of the element leaves, e.g. `SERVERS_*_HOST`, indexed by the part before the first element:
+     * `SERVERS_`. A name is matched by looking up its prefixes which end with a separator, so the cost doesn't
+     * depend on the number of patterns.
+     */
+    static final class ElementIndex {
+        private final ValueLoader valueLoader;
+        // prefix -> patterns.
+        private final Map<String, List<Pattern>> patterns = new HashMap<>();
+        // last characters of the prefixes.
+        private final Set<Character> separators = new HashSet<>();
+        private int minPrefix = Integer.MAX_VALUE;
+        private int maxPrefix;
+
+        private ElementIndex(List<Leaf> leaves, ValueLoader valueLoader) {
+            this.valueLoader = valueLoader;
+            for (Leaf leaf : leaves) {
+                if (!leaf.isElement()) {
+                    continue;
+                }
+                String[] parts = valueLoader.getName(leaf).split("\\*", -1);
+                String prefix = parts[0];
+                if (prefix.isEmpty() || parts.length - 1 != Collections.frequency(leaf.getPath(), ELEMENT)) {
+                    // The loader doesn't keep the element in the name.
+                    continue;
+                }
+                patterns.computeIfAbsent(prefix, key -> new ArrayList<>()).add(new Pattern(leaf, parts));
+                separators.add(prefix.charAt(prefix.length() - 1));
+                minPrefix = Math.min(minPrefix, prefix.length());
+                maxPrefix = Math.max(maxPrefix, prefix.length());
+            }
+        }
+
+        boolean isEmpty() {
+            return patterns.isEmpty();
+        }
+
+        /**
+         * @return paths of the element leaves with the name, with the elements filled in.
+         */
+        List<List<String>> match(String name) {
+            List<List<String>> paths = null;
+            int end = Math.min(name.length() - 1, maxPrefix);
+            for (int i = minPrefix; i <= end; i++) {
+                if (!separators.contains(name.charAt(i - 1))) {
+                    continue;
+                }
+                List<Pattern> candidates = patterns.get(name.substring(0, i));
+                if (candidates == null) {
+                    continue;
+                }
+                for (Pattern pattern : candidates) {
+                    List<String> path = pattern.match(name, valueLoader);
+                    if (path != null) {
+                        if (paths == null) {
+                            paths = new ArrayList<>();
+                        }
+                        paths.add(path);
+                    }
+                }
+            }
+            return paths == null ? Collections.emptyList() : paths;
+        }
+    }
+
+    private static final class Pattern {
+        private final Leaf leaf;
+        // the name split at the elements.
+        private final String[] parts;
+        private final char separator;
+
+        Pattern(Leaf leaf, String[] parts) {
+            this.leaf = leaf;
+            this.parts = parts;
+            this.separator = parts[0].charAt(parts[0].length() - 1);
+        }
+
+        List<String> match(String name, ValueLoader valueLoader) {
+            String[] elements = new String[parts.length - 1];
+            int position = parts[0].length();
+            for (int i = 1; i < parts.length; i++) {
+                // An element doesn't have the separator.
+                int end = name.indexOf(separator, position);
+                if (end < 0) {
+                    end = name.length();
+                }
+                if (end == position || !name.startsWith(parts[i], end)) {
+                    return null;
+                }
+                elements[i - 1] = valueLoader.getElement(name.substring(position, end));
+                position = end + parts[i].length();
+            }
+            if (position != name.length()) {
+                return null;
+            }
+
+            ImmutableList.Builder<String> path = ImmutableList.builder();
+            int element = 0;
+            for (String segment : leaf.getPath()) {
+                path.add(ELEMENT.equals(segment) ? elements[element++] : segment);
+            }
+            return path.build();
+        }
+    }
+
+    public static final class Builder {
+        private final Class<?> type;
+        private final ImmutableList.Builder<Leaf> leaves = ImmutableList.builder();
+
+        private Builder(Class<?> type) {
+            this.type = type;
+        }
+
+        public Builder leaf(Class<?> type, String... path) {
+            leaves.add(new Leaf(ImmutableList.copyOf(path), type));
+            return this;
+        }
+
+        public BindingPlan build() {
+            return new BindingPlan(type, leaves.build());
+        }
+    }
+
+    private static class Scanner {
+        private final ImmutableList.Builder<Leaf> leaves = ImmutableList.builder();
+        // Classes on the current path. Used to stop on self-referential types.
+        private final Deque<Class<?>> visiting = new ArrayDeque<>();
+
+        List<Leaf> scan(Class<?> klass) {
+            doScan(klass, ImmutableList.of());
+            return leaves.build();
+        }
+
+        private void doScan(Class<?> klass, List<String> path) {
+            if (visiting.contains(klass)) {
+                log.trace("Skip recursive property: {} at {}", klass, path);
+                return;
+            }
+
+            log.trace("Scanning config for {}", klass);
+            visiting.push(klass);
+            try {
+                BeanInfo beanInfo = Introspector.getBeanInfo(klass, Object.class);
+                for (PropertyDescriptor propertyDescriptor : beanInfo.getPropertyDescriptors()) {
+                    Class<?> propertyType = propertyDescriptor.getPropertyType();
+                    if (propertyType == null) {
+                        // indexed property without a non-indexed accessor.
+                        continue;
+                    }
+
+                    List<String> newPath = ImmutableList.<String>builder()
+                            .addAll(path)
+                            .add(propertyDescriptor.getName())
+                            .build();
+                    // Data files are overridden by their paths.
+                    if (propertyType.isPrimitive() || Primitives.isWrapperType(propertyType) || propertyType == String.class
+                            || propertyType == MappedLines.class || propertyType == MappedCsv.class) {
+                        if (propertyDescriptor.getWriteMethod() == null) {
+                            log.trace("There's no writer method. Path:{}", newPath);
+                            continue;
+                        }
+                        leaves.add(new Leaf(newPath, propertyType));
+                    } else if (List.class.isAssignableFrom(propertyType) || Map.class.isAssignableFrom(propertyType)) {
+                        scanElement(getGenericType(propertyDescriptor), newPath);
+                    } else if (isJdkType(propertyType)) {
+                        log.trace("Skip JDK type: {} at {}", propertyType.getName(), newPath);
+                    } else {
+                        log.trace("Handling child: {} => {}", klass.getName(), propertyDescriptor.getName());
+                        doScan(propertyType, newPath);
+                    }
+                }
+            } catch (IntrospectionException e) {
+                log.info("Can't read bean info: {}({})", klass, e.getMessage());
+            } finally {
+                visiting.pop();
+            }
+        }
+
+        /**
+         * Scan the elements of the {@link List} or the {@link Map} with String keys.
+         */
+        private void scanElement(Type type, List<String> path) {
+            if (!(type instanceof ParameterizedType)) {
+                log.trace("Skip raw collection at {}", path);
+                return;
+            }
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            Type elementType;
+            if (List.class.isAssignableFrom(rawType) && arguments.length == 1) {
+                elementType = arguments[0];
+            } else if (Map.class.isAssignableFrom(rawType) && arguments.length == 2 && arguments[0] == String.class) {
+                elementType = arguments[1];
+            } else {
+                log.trace("Skip collection {} at {}", type, path);
+                return;
+            }
+
+            List<String> newPath = ImmutableList.<String>builder()
+                    .addAll(path)
+                    .add(ELEMENT)
+                    .build();
+            if (elementType instanceof ParameterizedType) {
+                Class<?> elementClass = (Class<?>) ((ParameterizedType) elementType).getRawType();
+                if (List.class.isAssignableFrom(elementClass) || Map.class.isAssignableFrom(elementClass)) {
+                    scanElement(elementType, newPath);
+                }
+            } else if (elementType instanceof Class) {
+                Class<?> elementClass = (Class<?>) elementType;
+                if (Primitives.isWrapperType(elementClass) || elementClass == String.class
+                        || elementClass == MappedLines.class || elementClass == MappedCsv.class) {
+                    leaves.add(new Leaf(newPath, elementClass));
+                } else if (!isJdkType(elementClass)) {
+                    doScan(elementClass, newPath);
+                }
+            }
+        }
+
+        private static Type getGenericType(PropertyDescriptor propertyDescriptor) {
+            Method readMethod = propertyDescriptor.getReadMethod();
+            if (readMethod != null) {
+                return readMethod.getGenericReturnType();
+            }
+            return propertyDescriptor.getWriteMethod().getGenericParameterTypes()[0];
+        }
+
+        // Properties of JDK classes (e.g. Date#setTime) aren't configuration.
+        private static boolean isJdkType(Class<?> klass) {
+            return klass.isArray() || klass.getName().startsWith("java.") || klass.getName().startsWith("javax.");
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Converts the configuration tree built by SnakeYAML into a compact immutable one.
+ *
+ * <p>Mappings become array-backed {@link CompactMap}s and sequences become immutable lists. Equal strings,
+ * including keys, and equal numbers are deduplicated within the tree, so the bound configuration shares them, too.
+ * Subtrees shared in the source, e.g. includes of the same document, stay shared.</p>
+ */
+final class CompactTree {
+    // value -> its first instance in the tree.
+    private final Map<Object, Object> scalars = new HashMap<>();
+    // source container -> converted one.
+    private final Map<Object, Object> converted = new IdentityHashMap<>();
+
+    private CompactTree() {
+    }
+
+    static Object compact(Object tree) {
+        return new CompactTree().convert(tree);
+    }
+
+    private Object convert(Object value) {
+        if (value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof BigInteger) {
+            Object first = scalars.putIfAbsent(value, value);
+            return first == null ? value : first;
+        } else if (value instanceof Map || value instanceof List || value instanceof Set) {
+            Object result = converted.get(value);
+            if (result == null) {
+                result = convertContainer(value);
+                converted.put(value, result);
+            }
+            return result;
+        } else {
+            return value;
+        }
+    }
+
+    private Object convertContainer(Object value) {
+        if (value instanceof CompactMap) {
+            return value;
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Object[] keys = new Object[map.size()];
+            Object[] values = new Object[map.size()];
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                keys[i] = convert(entry.getKey());
+                values[i] = convert(entry.getValue());
+                i++;
+            }
+            return new CompactMap(keys, values);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            Object[] items = new Object[list.size()];
+            boolean hasNull = false;
+            for (int i = 0; i < items.length; i++) {
+                items[i] = convert(list.get(i));
+                hasNull |= items[i] == null;
+            }
+            return hasNull ? Collections.unmodifiableList(Arrays.asList(items)) : ImmutableList.copyOf(items);
+        } else {
+            // `!!set`
+            Set<Object> set = new LinkedHashSet<>();
+            for (Object item : (Set<?>) value) {
+                set.add(convert(item));
+            }
+            return Collections.unmodifiableSet(set);
+        }
+    }
+
+    /**
+     * Immutable map in insertion order, backed by arrays of the keys and the values. Maps larger than
+     * {@link #LINEAR_SCAN_SIZE} have a hash index, sorted for binary search.
+     */
+    static final class CompactMap extends AbstractMap<Object, Object> {
+        private static final int LINEAR_SCAN_SIZE = 8;
+
+        private final Object[] keys;
+        private final Object[] values;
+        // sorted hash codes of the keys, and the positions of the keys in the same order. null for small maps.
+        private final int[] hashes;
+        private final int[] positions;
+
+        CompactMap(Object[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+            if (keys.length <= LINEAR_SCAN_SIZE) {
+                this.hashes = null;
+                this.positions = null;
+            } else {
+                long[] index = new long[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    // hash in the upper half, position in the lower half.
+                    index[i] = ((long) hash(keys[i]) << 32) | i;
+                }
+                Arrays.sort(index);
+                this.hashes = new int[keys.length];
+                this.positions = new int[keys.length];
+                for (int i = 0; i < index.length; i++) {
+                    hashes[i] = (int) (index[i] >> 32);
+                    positions[i] = (int) index[i];
+                }
+            }
+        }
+
+        private static int hash(Object key) {
+            return key == null ? 0 : key.hashCode();
+        }
+
+        private int indexOf(Object key) {
+            if (hashes == null) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == key || (key != null && key.equals(keys[i]))) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            int hash = hash(key);
+            int found = Arrays.binarySearch(hashes, hash);
+            if (found < 0) {
+                return -1;
+            }
+            // binarySearch may land on any of the keys with the same hash.
+            while (found > 0 && hashes[found - 1] == hash) {
+                found--;
+            }
+            for (int i = found; i < hashes.length && hashes[i] == hash; i++) {
+                Object candidate = keys[positions[i]];
+                if (candidate == key || (key != null && key.equals(candidate))) {
+                    return positions[i];
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            return new AbstractSet<Entry<Object, Object>>() {
+                @Override
+                public Iterator<Entry<Object, Object>> iterator() {
+                    return new Iterator<Entry<Object, Object>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            if (next >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Object, Object> entry = new SimpleImmutableEntry<>(keys[next], values[next]);
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+    }
+}
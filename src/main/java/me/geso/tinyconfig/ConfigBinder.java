@@ -0,0 +1,39 @@
+package me.geso.tinyconfig;
+
+import java.io.IOException;
+
+/**
+ * Binds the configuration tree to the configuration class without reflection.
+ *
+ * <p>Implementations are generated by {@link TinyConfigProcessor} for classes annotated with {@link TinyConfig}.
+ * Don't implement this interface by hand.</p>
+ */
+public interface ConfigBinder<T> {
+    /**
+     * Overridable leaves of the configuration class, computed at compile time.
+     */
+    BindingPlan getPlan();
+
+    /**
+     * Create the configuration object from the tree loaded by SnakeYAML.
+     *
+     * @param tree    mapping of the configuration, or null.
+     * @param context overrides and conversions for this node.
+     * @return the configuration object, or null if the tree is null.
+     */
+    T bind(Object tree, BindContext context) throws IOException;
+
+    /**
+     * Create the configuration object whose sections are bound when their getters are called first.
+     * The top-level scalars are bound now. Binding failures of the sections are thrown from the getters
+     * as {@link java.io.UncheckedIOException}.
+     *
+     * <p>The result is a generated subclass of the configuration class. If the class is final, or the getter
+     * of a section can't be overridden, the section is bound now.</p>
+     *
+     * @param tree    mapping of the configuration, or null.
+     * @param context the context which resolves the overrides of each section by {@link BindContext#section}.
+     * @return the configuration object, or null if the tree is null.
+     */
+    T bindLazy(Object tree, BindContext context) throws IOException;
+}
@@ -0,0 +1,59 @@
+package me.geso.tinyconfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+
+/**
+ * Lookup of the binders generated by {@link TinyConfigProcessor}.
+ */
+@Slf4j
+final class ConfigBinders {
+    static final String SUFFIX = "$$TinyConfigBinder";
+
+    private static final ClassValue<Optional<ConfigBinder<?>>> BINDERS = new ClassValue<Optional<ConfigBinder<?>>>() {
+        @Override
+        protected Optional<ConfigBinder<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(load(type));
+        }
+    };
+
+    private ConfigBinders() {
+    }
+
+    /**
+     * @return the generated binder, or null if the class doesn't have one.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> ConfigBinder<T> find(Class<T> klass) {
+        return (ConfigBinder<T>) BINDERS.get(klass).orElse(null);
+    }
+
+    private static ConfigBinder<?> load(Class<?> klass) {
+        ClassLoader classLoader = klass.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+
+        Class<?> binderClass;
+        try {
+            binderClass = Class.forName(klass.getName() + SUFFIX, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            log.trace("There's no generated binder for {}", klass);
+            return null;
+        }
+
+        try {
+            ConfigBinder<?> binder = (ConfigBinder<?>) binderClass.getConstructor().newInstance();
+            if (binder.getPlan().getType() != klass) {
+                log.warn("Ignore {}: it binds {}", binderClass.getName(), binder.getPlan().getType());
+                return null;
+            }
+            log.debug("Using generated binder for {}", klass);
+            return binder;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            log.warn("Can't instantiate {}", binderClass.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package me.geso.tinyconfig;
+
+/**
+ * Receives the configurations reloaded by {@link ConfigHandle}.
+ *
+ * <p>Register listeners by {@link ConfigHandle#addListener(ConfigChangeListener)}. Listeners are called on
+ * the thread which reloaded the configuration, after {@link ConfigHandle#get()} returns the new one,
+ * and only if something changed.</p>
+ */
+@FunctionalInterface
+public interface ConfigChangeListener<T> {
+    /**
+     * @param previous configuration before the reload.
+     * @param current  configuration after the reload.
+     * @param changes  changed paths.
+     */
+    void onChange(T previous, T current, ConfigChanges changes);
+}
@@ -0,0 +1,116 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Paths of the configuration which changed on reload, with the overrides applied.
+ *
+ * <p>A path is reported at the deepest mapping key where the trees differ: a changed scalar, a sequence
+ * (sequences are compared as a whole), an added or removed key, or a value whose type changed.</p>
+ */
+public final class ConfigChanges {
+    private static final ConfigChanges NONE = new ConfigChanges(ImmutableSet.of());
+
+    private final Set<List<String>> paths;
+    // paths and all of their ancestors.
+    private final Set<List<String>> dirty;
+
+    private ConfigChanges(Set<List<String>> paths) {
+        this.paths = paths;
+        this.dirty = new HashSet<>();
+        for (List<String> path : paths) {
+            for (int i = 0; i <= path.size(); i++) {
+                dirty.add(path.subList(0, i));
+            }
+        }
+    }
+
+    static ConfigChanges none() {
+        return NONE;
+    }
+
+    /**
+     * Compare the trees. The trees aren't modified.
+     */
+    static ConfigChanges diff(Object previous, Object current) {
+        Set<List<String>> paths = new LinkedHashSet<>();
+        diff(previous, current, new ArrayList<>(), paths);
+        return paths.isEmpty() ? NONE : new ConfigChanges(ImmutableSet.copyOf(paths));
+    }
+
+    private static void diff(Object previous, Object current, List<String> path, Set<List<String>> paths) {
+        if (previous == current) {
+            return;
+        }
+        if (previous instanceof Map && current instanceof Map) {
+            Map<?, ?> previousMap = (Map<?, ?>) previous;
+            Map<?, ?> currentMap = (Map<?, ?>) current;
+            for (Map.Entry<?, ?> entry : previousMap.entrySet()) {
+                path.add(YamlTreeConverter.toKey(entry.getKey()));
+                if (currentMap.containsKey(entry.getKey())) {
+                    diff(entry.getValue(), currentMap.get(entry.getKey()), path, paths);
+                } else {
+                    paths.add(ImmutableList.copyOf(path));
+                }
+                path.remove(path.size() - 1);
+            }
+            for (Object key : currentMap.keySet()) {
+                if (!previousMap.containsKey(key)) {
+                    path.add(YamlTreeConverter.toKey(key));
+                    paths.add(ImmutableList.copyOf(path));
+                    path.remove(path.size() - 1);
+                }
+            }
+        } else if (!Objects.deepEquals(previous, current)) {
+            paths.add(ImmutableList.copyOf(path));
+        }
+    }
+
+    /**
+     * @return changed paths, in the order of the trees. The empty path is the root.
+     */
+    public Set<List<String>> getPaths() {
+        return paths;
+    }
+
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    /**
+     * @return true if the value at the path, or anything under it, changed.
+     */
+    public boolean isChanged(String... path) {
+        return isChanged(ImmutableList.copyOf(path));
+    }
+
+    /**
+     * @return true if the value at the path, or anything under it, changed.
+     */
+    public boolean isChanged(List<String> path) {
+        if (dirty.contains(path)) {
+            return true;
+        }
+        // The path is under a changed value, e.g. a replaced sequence.
+        for (int i = 0; i < path.size(); i++) {
+            if (paths.contains(path.subList(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChanges" + paths;
+    }
+}
@@ -0,0 +1,223 @@
+package me.geso.tinyconfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Handle of the configuration which is reloaded when the configuration file or any included file changed,
+ * or a fragment is added to or removed from a directory layer.
+ *
+ * <p>{@link #get()} is a single volatile read. Reloading happens on a background thread, and a new
+ * configuration object replaces the old one only after it's completely built. If reloading fails,
+ * the handle keeps the previous configuration.</p>
+ *
+ * <pre>{@code
+ * try (ConfigHandle<ConfigFile> handle = reader.watch(ConfigFile.class)) {
+ *     ConfigFile config = handle.get();
+ * }
+ * }</pre>
+ *
+ * <p>If the reloaded configuration is the same as the current one, with the overrides applied, the current object
+ * is kept. Otherwise {@link ConfigChangeListener}s receive the changed paths. With
+ * {@link ConfigReaderBuilder#setIncrementalReload(boolean)}, only the changed sections are bound again.</p>
+ */
+@Slf4j
+public class ConfigHandle<T> implements Closeable {
+    private final DefaultConfigReader reader;
+    private final Class<T> klass;
+    private final String profile;
+    private final Duration reloadDelay;
+    // null unless incremental reload is enabled.
+    private final IncrementalBinder incrementalBinder;
+    private final List<ConfigChangeListener<? super T>> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+    private volatile Set<Path> files;
+    // directories of the directory layers, where any `*.yml` file is watched.
+    private volatile Set<Path> directories;
+    private volatile T current;
+    // the tree of the current configuration, with the overrides. Guarded by this.
+    private Object tree;
+    private boolean loaded;
+    private volatile boolean closed;
+
+    ConfigHandle(DefaultConfigReader reader, Class<T> klass, String profile, Duration reloadDelay, boolean incrementalReload) throws IOException {
+        this.reader = reader;
+        this.klass = klass;
+        this.profile = profile;
+        this.reloadDelay = reloadDelay;
+        this.incrementalBinder = incrementalReload ? new IncrementalBinder(reader) : null;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    void start() throws IOException {
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+
+        Thread thread = new Thread(this::watchLoop, "tinyconfig-watcher-" + klass.getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Get the current configuration.
+     */
+    public T get() {
+        return current;
+    }
+
+    /**
+     * Files watched by this handle: the configuration file and all included files.
+     */
+    public Set<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * Reload the configuration now, on the caller's thread.
+     *
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     */
+    public synchronized void reload() throws IOException {
+        LoadedConfig loadedConfig = reader.readInternal(profile);
+        Object newTree = reader.rewriteValues(loadedConfig.getTree(), reader.scanValues(klass));
+        T previous = this.current;
+        ConfigChanges changes = loaded ? ConfigChanges.diff(tree, newTree) : ConfigChanges.none();
+        T config;
+        if (!loaded) {
+            config = reader.bindRewritten(newTree, klass);
+        } else if (changes.isEmpty()) {
+            config = previous;
+        } else if (incrementalBinder != null) {
+            config = incrementalBinder.rebind(previous, tree, newTree, klass, changes);
+        } else {
+            config = reader.bindRewritten(newTree, klass);
+        }
+        watch(loadedConfig.getFiles(), loadedConfig.getDirectories());
+        this.tree = newTree;
+        this.current = config;
+        log.info("Loaded configuration {} from {}", klass.getName(), loadedConfig.getFiles());
+
+        if (loaded && !changes.isEmpty()) {
+            log.info("Changed paths of {}: {}", klass.getName(), changes.getPaths());
+            for (ConfigChangeListener<? super T> listener : listeners) {
+                try {
+                    listener.onChange(previous, config, changes);
+                } catch (RuntimeException e) {
+                    log.warn("Listener failed: {}", listener, e);
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Add a listener of the reloaded configurations.
+     */
+    public void addListener(ConfigChangeListener<? super T> listener) {
+        listeners.add(listener);
+    }
+
+    private void watch(Set<Path> newFiles, Set<Path> newDirectories) throws IOException {
+        Set<Path> directories = new HashSet<>(newDirectories);
+        for (Path file : newFiles) {
+            directories.add(file.getParent());
+        }
+        for (Path directory : directories) {
+            if (!watchKeys.containsKey(directory)) {
+                log.debug("Watching {}", directory);
+                watchKeys.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+            }
+        }
+        watchKeys.entrySet().removeIf(entry -> {
+            if (directories.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+        this.files = newFiles;
+        this.directories = newDirectories;
+    }
+
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                if (!poll(watchService.take())) {
+                    continue;
+                }
+
+                // Wait until the writes settle down.
+                WatchKey key;
+                while ((key = watchService.poll(reloadDelay.toNanos(), TimeUnit.NANOSECONDS)) != null) {
+                    poll(key);
+                }
+
+                try {
+                    reload();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Can't reload configuration {}. Keep the current one.", klass.getName(), e);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.debug("Stop watching configuration {}", klass.getName());
+        }
+    }
+
+    /**
+     * @return true if the key has events for the watched files.
+     */
+    private boolean poll(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        Set<Path> files = this.files;
+        boolean fragments = this.directories.contains(directory);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                changed = true;
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (files.contains(file) || (fragments && file.getFileName().toString().endsWith(".yml"))) {
+                    log.debug("Detected {} on {}", event.kind().name(), file);
+                    changed = true;
+                }
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stop watching files.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+    }
+}
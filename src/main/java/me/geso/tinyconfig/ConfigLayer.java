@@ -0,0 +1,35 @@
+package me.geso.tinyconfig;
+
+import lombok.Value;
+
+/**
+ * A configuration document merged over the layers before it. Added by {@link ConfigReaderBuilder#addLayer(String)}
+ * and its variants.
+ */
+@Value
+class ConfigLayer {
+    static final String PROFILE_PLACEHOLDER = "${profile}";
+
+    enum Type {
+        RESOURCE,
+        FILE,
+        /**
+         * `*.yml` fragments in the directory, merged in the order of their names.
+         */
+        DIRECTORY
+    }
+
+    private Type type;
+    /**
+     * Resource name, file path or directory path, which may contain {@link #PROFILE_PLACEHOLDER}.
+     */
+    private String name;
+    /**
+     * true to skip the layer if the document doesn't exist.
+     */
+    private boolean optional;
+
+    String getName(String profile) {
+        return name.replace(PROFILE_PLACEHOLDER, profile);
+    }
+}
@@ -0,0 +1,60 @@
+package me.geso.tinyconfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Deep merge of configuration trees.
+ *
+ * <p>The trees aren't modified. Only the maps on the paths the overlay touches are copied; every other subtree of
+ * the base and the overlay is shared with the result, so merging costs the size of the overlay.</p>
+ */
+final class ConfigMerger {
+    private ConfigMerger() {
+    }
+
+    /**
+     * Merge the overlay over the base. Mappings are merged key by key. Any other value in the overlay, including
+     * sequences and null, replaces the base value.
+     */
+    static Object merge(Object base, Object overlay) {
+        return merge(base, overlay, new ArrayList<>(), null);
+    }
+
+    /**
+     * Merge the overlay over the base, and report the paths where the overlay replaces a base value with
+     * a different one. Merging two mappings isn't a conflict.
+     *
+     * @param conflicts receives the keys from the root to each replaced value.
+     */
+    static Object merge(Object base, Object overlay, Consumer<List<Object>> conflicts) {
+        return merge(base, overlay, new ArrayList<>(), conflicts);
+    }
+
+    private static Object merge(Object base, Object overlay, List<Object> path, Consumer<List<Object>> conflicts) {
+        if (!(base instanceof Map) || !(overlay instanceof Map)) {
+            return overlay;
+        }
+        Map<?, ?> overlayMap = (Map<?, ?>) overlay;
+        if (overlayMap.isEmpty()) {
+            return base;
+        }
+        Map<Object, Object> merged = new LinkedHashMap<>((Map<?, ?>) base);
+        for (Map.Entry<?, ?> entry : overlayMap.entrySet()) {
+            Object value = merged.get(entry.getKey());
+            path.add(entry.getKey());
+            if (conflicts != null && merged.containsKey(entry.getKey())
+                    && !(value instanceof Map && entry.getValue() instanceof Map)
+                    && !Objects.deepEquals(value, entry.getValue())) {
+                conflicts.accept(new ArrayList<>(path));
+            }
+            merged.put(entry.getKey(), merge(value, entry.getValue(), path, conflicts));
+            path.remove(path.size() - 1);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,69 @@
+package me.geso.tinyconfig;
+
+import java.util.List;
+
+/**
+ * Receives events while {@link ConfigReader} reads configuration.
+ *
+ * <p>Register listeners by {@link ConfigReaderBuilder#addListener(ConfigReadListener)}.
+ * Reads may run concurrently and includes may be loaded on other threads, so implementations must be thread-safe.
+ * Without listeners, the reader doesn't measure anything.</p>
+ */
+public interface ConfigReadListener {
+    enum Phase {
+        /**
+         * Reading and parsing the configuration file and its includes.
+         */
+        LOAD,
+        /**
+         * Looking up the overrides by {@link ValueLoader}s.
+         */
+        SCAN,
+        /**
+         * Applying the overrides to the configuration tree.
+         */
+        REWRITE,
+        /**
+         * Binding the configuration tree to the configuration class. In streaming mode, the configuration
+         * is parsed in this phase too.
+         */
+        BIND
+    }
+
+    default void onPhaseStart(Phase phase) {
+    }
+
+    /**
+     * @param elapsedNanos time spent in the phase, in nanoseconds.
+     */
+    default void onPhaseEnd(Phase phase, long elapsedNanos) {
+    }
+
+    /**
+     * Called when an included document has been parsed. Once per document and read, since
+     * the parsed documents are reused.
+     *
+     * @param location     canonical path of the file, or URL of the resource.
+     * @param bytes        size of the document in bytes.
+     * @param elapsedNanos time spent reading and parsing the document, in nanoseconds.
+     *                     Includes in the document are not counted.
+     */
+    default void onInclude(String location, long bytes, long elapsedNanos) {
+    }
+
+    /**
+     * Called when a value in the configuration is overwritten.
+     */
+    default void onOverride(PathValue pathValue) {
+    }
+
+    /**
+     * Called when a fragment of a directory layer overwrites a value set by an earlier fragment of the directory.
+     *
+     * @param path     path of the value.
+     * @param previous canonical path of the fragment which set the value.
+     * @param location canonical path of the fragment which overwrote it.
+     */
+    default void onConflict(List<String> path, String previous, String location) {
+    }
+}
@@ -3,7 +3,17 @@ package me.geso.tinyconfig;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+/**
+ * Reads configuration files. Readers built by {@link ConfigReaderBuilder} are thread-safe:
+ * share one reader and call it from any number of threads.
+ *
+ * <p>Other implementations need only the {@code read} methods. The other methods have default implementations,
+ * which delegate to {@code read} or throw {@link UnsupportedOperationException}.</p>
+ */
 public interface ConfigReader {
     /**
      * Read configuration file.
@@ -23,4 +33,157 @@ public interface ConfigReader {
      * @throws IOException Throws IOException if ConfigReader can't read configuration file.
      */
     <T> T read(Class<T> klass) throws IOException;
+
+    /**
+     * Read configuration file on the executor. Reading and parsing the files and includes, and binding,
+     * run on the executor; the caller isn't blocked.
+     *
+     * <p>Cancelling the future interrupts the read, which stops at the next blocking I/O or between the phases.
+     * Any executor works, e.g. a virtual thread executor where available.</p>
+     *
+     * <p>The default implementation calls {@link #read(Class, String)} on the executor. Cancelling it doesn't
+     * interrupt the read.</p>
+     *
+     * @param klass    configuration mapping class
+     * @param profile  active profile name.
+     * @param executor executor to read the configuration on.
+     * @return future of the parsed result. Failures are reported through the future.
+     * @throws java.util.concurrent.RejectedExecutionException if the executor rejects the read.
+     */
+    default <T> CompletableFuture<T> readAsync(@NonNull Class<T> klass, @NonNull String profile,
+                                               @NonNull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(klass, profile);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Read configuration file on the executor. Detect active profile from system property on the calling thread.
+     * The default implementation calls {@link #read(Class)} on the executor, which detects the profile there.
+     *
+     * @param klass    configuration mapping class
+     * @param executor executor to read the configuration on.
+     * @return future of the parsed result. Failures are reported through the future.
+     * @throws java.util.concurrent.RejectedExecutionException if the executor rejects the read.
+     */
+    default <T> CompletableFuture<T> readAsync(Class<T> klass, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(klass);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Read configuration file, and bind each top-level section when its getter is called first.
+     * The overrides of a section are resolved when it's bound, too. Bound sections are kept.
+     *
+     * <p>The class must be annotated with {@link TinyConfig}. The result is a generated subclass of it.
+     * Binding failures of the sections are thrown from the getters as {@link java.io.UncheckedIOException}.</p>
+     *
+     * <p>The default implementation binds all sections now by {@link #read(Class, String)}.</p>
+     *
+     * @param klass   configuration mapping class
+     * @param profile active profile name.
+     * @return parsed result.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws IllegalArgumentException if the class doesn't have the generated binder.
+     */
+    default <T> T readLazy(@NonNull Class<T> klass, @NonNull String profile) throws IOException {
+        return read(klass, profile);
+    }
+
+    /**
+     * Read configuration file, and bind each top-level section when its getter is called first.
+     * Detect active profile from system property. The default implementation binds all sections now by
+     * {@link #read(Class)}.
+     *
+     * @param klass configuration mapping class
+     * @return parsed result.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws IllegalArgumentException if the class doesn't have the generated binder.
+     */
+    default <T> T readLazy(Class<T> klass) throws IOException {
+        return read(klass);
+    }
+
+    /**
+     * Read configuration file as the index of the values by their paths, without binding it to a class.
+     * The overrides by environment variables and system properties are applied to the paths in the file.
+     *
+     * @param profile active profile name.
+     * @return values of the configuration.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default ConfigView readView(@NonNull String profile) throws IOException {
+        throw new UnsupportedOperationException("readView isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Read configuration file as the index of the values by their paths. Detect active profile from system property.
+     *
+     * @return values of the configuration.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default ConfigView readView() throws IOException {
+        throw new UnsupportedOperationException("readView isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Read configuration file once, to bind several configuration classes from it.
+     *
+     * @param profile active profile name.
+     * @return session which holds the loaded configuration.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default ConfigSession openSession(@NonNull String profile) throws IOException {
+        throw new UnsupportedOperationException("openSession isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Read configuration file once, to bind several configuration classes from it.
+     * Detect active profile from system property.
+     *
+     * @return session which holds the loaded configuration.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default ConfigSession openSession() throws IOException {
+        throw new UnsupportedOperationException("openSession isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Read configuration file and watch it and all included files for changes.
+     * The returned handle rebuilds the configuration in background when any of them changed.
+     *
+     * @param klass   configuration mapping class
+     * @param profile active profile name.
+     * @return handle of the current configuration. Close it to stop watching.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default <T> ConfigHandle<T> watch(@NonNull Class<T> klass, @NonNull String profile) throws IOException {
+        throw new UnsupportedOperationException("watch isn't supported by " + getClass().getName());
+    }
+
+    /**
+     * Read configuration file and watch it for changes. Detect active profile from system property.
+     *
+     * @param klass configuration mapping class
+     * @return handle of the current configuration. Close it to stop watching.
+     * @throws IOException Throws IOException if ConfigReader can't read configuration file.
+     * @throws UnsupportedOperationException by default.
+     */
+    default <T> ConfigHandle<T> watch(Class<T> klass) throws IOException {
+        throw new UnsupportedOperationException("watch isn't supported by " + getClass().getName());
+    }
 }
@@ -3,15 +3,31 @@ package me.geso.tinyconfig;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.collect.ImmutableList;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public class ConfigReaderBuilder {
     public static final String DEFAULT_CONFIG_FILE_PREFIX = "config-";
     public static final String DEFAULT_CONFIG_FILE_PROPERTY = "config.file";
     public static final String DEFAULT_CONFIG_PROFILE_PROPERTY = "config.profile";
+    public static final Duration DEFAULT_RELOAD_DELAY = Duration.ofMillis(300);
 
     private String configFilePrefix;
     private String configFileProperty;
     private String configProfileProperty;
+    private Duration reloadDelay;
+    private Executor includeExecutor;
+    private Path snapshotDirectory;
+    private boolean streaming;
+    private boolean incrementalReload;
+    private boolean compactTree;
+    private final List<ConfigLayer> layers = new ArrayList<>();
+    private final List<ConfigReadListener> listeners = new ArrayList<>();
 
     private ConfigReaderBuilder() {
     }
@@ -38,7 +54,164 @@ public class ConfigReaderBuilder {
         return this;
     }
 
+    /**
+     * Set how long {@link ConfigHandle} waits for more changes before reloading the configuration.
+     */
+    public ConfigReaderBuilder setReloadDelay(Duration reloadDelay) {
+        this.reloadDelay = reloadDelay;
+        return this;
+    }
+
+    /**
+     * Rebind only the sections which changed when {@link ConfigHandle} reloads the configuration.
+     * Objects of the unchanged sections are kept in the new configuration. Disabled by default.
+     *
+     * <p>Sections are reused by their Java bean properties. Properties without a getter and a setter, or renamed by
+     * Jackson annotations, are bound again.</p>
+     */
+    public ConfigReaderBuilder setIncrementalReload(boolean incrementalReload) {
+        this.incrementalReload = incrementalReload;
+        return this;
+    }
+
+    /**
+     * Keep the loaded configuration tree in a compact immutable form. Disabled by default.
+     *
+     * <p>Mappings are backed by arrays, and equal strings, keys and numbers are shared within the tree and the
+     * configuration bound from it. This saves heap when the configuration is large and repetitive, or kept by
+     * {@link ConfigHandle} and {@link ConfigSession}, at the cost of a pass over the tree on each read.
+     * It has no effect with {@link #setStreaming(boolean)}, which doesn't build a tree.</p>
+     */
+    public ConfigReaderBuilder setCompactTree(boolean compactTree) {
+        this.compactTree = compactTree;
+        return this;
+    }
+
+    /**
+     * Load `!file` and `!resource` includes concurrently on the executor.
+     * By default, includes are loaded one by one on the reading thread, and only the fragments of
+     * {@link #addDirectoryLayer(String)} are parsed concurrently, on the common pool.
+     *
+     * <p>The executor can be bounded: a reading thread runs an include itself if the executor hasn't
+     * started it yet. A virtual thread executor works too, where available.</p>
+     */
+    public ConfigReaderBuilder setIncludeExecutor(Executor includeExecutor) {
+        this.includeExecutor = includeExecutor;
+        return this;
+    }
+
+    /**
+     * Cache the effective configuration in the directory, and read it from there while the configuration files
+     * and the overrides are unchanged. The cache is disabled by default.
+     *
+     * <p>Snapshots are used only when the configuration and all includes are local files. They contain
+     * the overridden values, so keep the directory private.</p>
+     */
+    public ConfigReaderBuilder setSnapshotDirectory(Path snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+        return this;
+    }
+
+    /**
+     * Read the configuration as a token stream, and bind it while parsing. The configuration tree isn't built,
+     * so the peak heap usage doesn't grow with the size of the configuration files. Disabled by default.
+     *
+     * <p>Includes and overrides are supported, but YAML aliases aren't. Scalars are resolved by
+     * jackson-dataformat-yaml, e.g. timestamps are bound as written. {@link ConfigHandle} still reads the tree,
+     * and streaming can't be used with {@link #setSnapshotDirectory(Path)} or layers.</p>
+     */
+    public ConfigReaderBuilder setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Add a resource to the layers of the configuration. `${profile}` in the name is replaced with the active profile.
+     *
+     * <p>Layers are merged in the order they are added: mappings are merged key by key, and other values of
+     * the later layers replace the earlier ones. The file of the `config.file` property is merged last, if set.
+     * With layers, the resource of the profile isn't read unless it's added as a layer.
+     * If the executor is set by {@link #setIncludeExecutor(Executor)}, layers are parsed concurrently on it.</p>
+     *
+     * <pre>{@code
+     * ConfigReaderBuilder.create()
+     *     .addLayer("config-base.yml")
+     *     .addLayer("config-${profile}.yml")
+     *     .addOptionalLayer("config-${profile}-canary.yml")
+     *     .addOptionalFileLayer("config-local.yml")
+     *     .build();
+     * }</pre>
+     */
+    public ConfigReaderBuilder addLayer(String resourceName) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.RESOURCE, resourceName, false));
+        return this;
+    }
+
+    /**
+     * Add a resource to the layers, which is skipped if it doesn't exist. See {@link #addLayer(String)}.
+     */
+    public ConfigReaderBuilder addOptionalLayer(String resourceName) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.RESOURCE, resourceName, true));
+        return this;
+    }
+
+    /**
+     * Add a file to the layers. See {@link #addLayer(String)}.
+     */
+    public ConfigReaderBuilder addFileLayer(String fileName) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.FILE, fileName, false));
+        return this;
+    }
+
+    /**
+     * Add a file to the layers, which is skipped if it doesn't exist. See {@link #addLayer(String)}.
+     * {@link ConfigHandle} doesn't notice the file until it's reloaded by the other files.
+     */
+    public ConfigReaderBuilder addOptionalFileLayer(String fileName) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.FILE, fileName, true));
+        return this;
+    }
+
+    /**
+     * Add the `*.yml` fragments in the directory to the layers, in the order of their file names. Subdirectories
+     * aren't read. See {@link #addLayer(String)}.
+     *
+     * <p>Fragments are parsed concurrently on the executor set by {@link #setIncludeExecutor(Executor)}, or on
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} if it isn't set.
+     * When a fragment overwrites a value of an earlier fragment in the directory, the reader logs a warning and
+     * calls {@link ConfigReadListener#onConflict}. Parsed fragments are kept by the reader, and reused until
+     * the fragment or its includes are modified. {@link ConfigHandle} reloads the configuration when a fragment
+     * is added or removed, too.</p>
+     */
+    public ConfigReaderBuilder addDirectoryLayer(String directory) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.DIRECTORY, directory, false));
+        return this;
+    }
+
+    /**
+     * Add the fragments in the directory to the layers, which are skipped if the directory doesn't exist.
+     * See {@link #addDirectoryLayer(String)}.
+     */
+    public ConfigReaderBuilder addOptionalDirectoryLayer(String directory) {
+        this.layers.add(new ConfigLayer(ConfigLayer.Type.DIRECTORY, directory, true));
+        return this;
+    }
+
+    /**
+     * Add a listener of the events while reading configuration.
+     */
+    public ConfigReaderBuilder addListener(ConfigReadListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
     public ConfigReader build() {
+        if (streaming && snapshotDirectory != null) {
+            throw new IllegalStateException("Streaming can't be used with snapshots.");
+        }
+        if (streaming && !layers.isEmpty()) {
+            throw new IllegalStateException("Streaming can't be used with layers.");
+        }
         ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
@@ -51,6 +224,53 @@ public class ConfigReaderBuilder {
         if (configProfileProperty == null) {
             configProfileProperty = DEFAULT_CONFIG_PROFILE_PROPERTY;
         }
-        return new DefaultConfigReader(objectMapper, configFilePrefix, configFileProperty, configProfileProperty);
+        if (reloadDelay == null) {
+            reloadDelay = DEFAULT_RELOAD_DELAY;
+        }
+        return new DefaultConfigReader(objectMapper, configFilePrefix, configFileProperty, configProfileProperty, reloadDelay, includeExecutor, buildListener(),
+                snapshotDirectory == null ? null : new SnapshotCache(snapshotDirectory), streaming, ImmutableList.copyOf(layers), incrementalReload, compactTree);
+    }
+
+    private ConfigReadListener buildListener() {
+        if (listeners.isEmpty()) {
+            return null;
+        } else if (listeners.size() == 1) {
+            return listeners.get(0);
+        } else {
+            return new CompositeConfigReadListener(ImmutableList.copyOf(listeners));
+        }
+    }
+
+    private static class CompositeConfigReadListener implements ConfigReadListener {
+        private final List<ConfigReadListener> listeners;
+
+        CompositeConfigReadListener(List<ConfigReadListener> listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void onPhaseStart(Phase phase) {
+            listeners.forEach(it -> it.onPhaseStart(phase));
+        }
+
+        @Override
+        public void onPhaseEnd(Phase phase, long elapsedNanos) {
+            listeners.forEach(it -> it.onPhaseEnd(phase, elapsedNanos));
+        }
+
+        @Override
+        public void onInclude(String location, long bytes, long elapsedNanos) {
+            listeners.forEach(it -> it.onInclude(location, bytes, elapsedNanos));
+        }
+
+        @Override
+        public void onOverride(PathValue pathValue) {
+            listeners.forEach(it -> it.onOverride(pathValue));
+        }
+
+        @Override
+        public void onConflict(List<String> path, String previous, String location) {
+            listeners.forEach(it -> it.onConflict(path, previous, location));
+        }
     }
 }
@@ -0,0 +1,104 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ClassToInstanceMap;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Configuration loaded once by {@link ConfigReader#openSession(String)}, to bind several configuration classes.
+ *
+ * <p>The configuration file and its includes are read and parsed once. Each class gets its own overrides,
+ * and the loaded tree is shared by all of them without being modified. The session can be used from
+ * several threads. Snapshots and streaming of the reader aren't used.</p>
+ *
+ * <pre>{@code
+ * ConfigSession session = reader.openSession();
+ * DatabaseConfig database = session.read(DatabaseConfig.class);
+ * CacheConfig cache = session.read(CacheConfig.class);
+ * }</pre>
+ */
+public final class ConfigSession {
+    private final DefaultConfigReader reader;
+    private final Object tree;
+
+    ConfigSession(DefaultConfigReader reader, Object tree) {
+        this.reader = reader;
+        this.tree = tree;
+    }
+
+    /**
+     * Bind the configuration to the class.
+     *
+     * @param klass configuration mapping class
+     * @return parsed result.
+     * @throws IOException Throws IOException if ConfigReader can't bind the configuration.
+     */
+    public <T> T read(@NonNull Class<T> klass) throws IOException {
+        return reader.bind(tree, klass);
+    }
+
+    /**
+     * Bind the configuration to the classes, one by one.
+     *
+     * @return the configuration of each class. Classes bound to null, e.g. from an empty file, are absent.
+     * @throws IOException Throws IOException if ConfigReader can't bind the configuration.
+     */
+    public ClassToInstanceMap<Object> readAll(@NonNull Class<?>... classes) throws IOException {
+        return readAll(null, classes);
+    }
+
+    /**
+     * Bind the configuration to the classes concurrently on the executor. The calling thread binds the classes
+     * the executor hasn't started yet, so a bounded executor works too.
+     *
+     * @param executor executor to bind the classes on, or null to bind them on the calling thread.
+     * @return the configuration of each class. Classes bound to null, e.g. from an empty file, are absent.
+     * @throws IOException Throws IOException if ConfigReader can't bind the configuration.
+     */
+    public ClassToInstanceMap<Object> readAll(Executor executor, @NonNull Class<?>... classes) throws IOException {
+        List<FutureTask<?>> tasks = new ArrayList<>(classes.length);
+        for (Class<?> klass : classes) {
+            tasks.add(new FutureTask<>(() -> read(klass)));
+        }
+        if (executor != null) {
+            // The first class is bound on this thread.
+            for (FutureTask<?> task : tasks.subList(Math.min(1, tasks.size()), tasks.size())) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // Run it on this thread.
+                }
+            }
+        }
+
+        ImmutableClassToInstanceMap.Builder<Object> builder = ImmutableClassToInstanceMap.builder();
+        for (int i = 0; i < classes.length; i++) {
+            FutureTask<?> task = tasks.get(i);
+            // Run it on this thread unless the executor has started it already.
+            task.run();
+            Object config = DefaultConfigReader.getResult(task);
+            if (config != null) {
+                put(builder, classes[i], config);
+            }
+        }
+        return builder.build();
+    }
+
+    private static <T> void put(ImmutableClassToInstanceMap.Builder<Object> builder, Class<T> klass, Object config) {
+        builder.put(klass, klass.cast(config));
+    }
+
+    /**
+     * Get the values of the configuration by their paths. See {@link ConfigReader#readView(String)}.
+     */
+    public ConfigView readView() {
+        return reader.view(tree);
+    }
+}
@@ -0,0 +1,289 @@
+package me.geso.tinyconfig;
+
+import lombok.NonNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable index of the scalar values in the configuration, by their paths.
+ *
+ * <p>The path is the keys joined with `.`, and the index of the element in a sequence. e.g.
+ * `dataSource.uri` or `tags.0`. Empty mappings and sequences don't have paths. The overrides by
+ * {@link ValueLoader}s are applied to the values in the file; paths which aren't in the file can't be added.</p>
+ *
+ * <p>A lookup is a single hash lookup. {@link #subtree(String)} shares the index with the parent view.</p>
+ *
+ * <pre>{@code
+ * ConfigView view = reader.readView();
+ * int port = view.getInt("port", 80);
+ * ConfigView dataSource = view.subtree("dataSource");
+ * String uri = dataSource.getString("uri");
+ * }</pre>
+ */
+public final class ConfigView {
+    // full path -> String, Number, Boolean or null.
+    private final Map<String, Object> values;
+    // sorted full paths.
+    private final String[] paths;
+    // "" or the path of the subtree followed by `.`.
+    private final String prefix;
+    private final int from;
+    private final int to;
+
+    private ConfigView(Map<String, Object> values, String[] paths, String prefix, int from, int to) {
+        this.values = values;
+        this.paths = paths;
+        this.prefix = prefix;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Create the view of the values.
+     *
+     * @param leaves path -> value, from {@link #flatten(Object)}.
+     */
+    static ConfigView of(Map<List<String>, Object> leaves) {
+        Map<String, Object> values = new HashMap<>(leaves.size() * 4 / 3 + 1);
+        for (Map.Entry<List<String>, Object> entry : leaves.entrySet()) {
+            values.put(String.join(".", entry.getKey()).intern(), entry.getValue());
+        }
+        String[] paths = values.keySet().toArray(new String[values.size()]);
+        Arrays.sort(paths);
+        return new ConfigView(values, paths, "", 0, paths.length);
+    }
+
+    /**
+     * Collect the scalar values in the tree, in the order of the tree.
+     * Values other than strings, numbers and booleans are converted into the text as {@link ConfigReader#read} does.
+     */
+    static Map<List<String>, Object> flatten(Object tree) {
+        Map<List<String>, Object> leaves = new LinkedHashMap<>();
+        flatten(tree, new ArrayList<>(), leaves);
+        return leaves;
+    }
+
+    private static void flatten(Object value, List<String> path, Map<List<String>, Object> leaves) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                path.add(YamlTreeConverter.toKey(entry.getKey()));
+                flatten(entry.getValue(), path, leaves);
+                path.remove(path.size() - 1);
+            }
+        } else if (value instanceof Set) {
+            // `!!set` is a mapping with null values.
+            for (Object item : (Set<?>) value) {
+                path.add(YamlTreeConverter.toKey(item));
+                flatten(null, path, leaves);
+                path.remove(path.size() - 1);
+            }
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            Collection<?> items = value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+            int i = 0;
+            for (Object item : items) {
+                path.add(String.valueOf(i++));
+                flatten(item, path, leaves);
+                path.remove(path.size() - 1);
+            }
+        } else if (!path.isEmpty()) {
+            boolean scalar = value == null || value instanceof String || value instanceof Boolean
+                    || value instanceof Integer || value instanceof Long || value instanceof BigInteger
+                    || value instanceof Double;
+            leaves.put(new ArrayList<>(path), scalar ? value : YamlTreeConverter.toTree(value).asText());
+        }
+    }
+
+    /**
+     * Get the view of the values under the path. Paths of the view are relative to it.
+     */
+    public ConfigView subtree(@NonNull String path) {
+        String start = prefix + path + ".";
+        // `/` is next to `.`, so [start, end) is every path beginning with start.
+        String end = prefix + path + "/";
+        int lower = search(start);
+        int upper = search(end);
+        return new ConfigView(values, paths, start, lower, upper);
+    }
+
+    private int search(String key) {
+        int index = Arrays.binarySearch(paths, from, to, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return true if the path has a value, including null.
+     */
+    public boolean has(@NonNull String path) {
+        return values.containsKey(fullPath(path));
+    }
+
+    /**
+     * @return paths in the view, in sorted order.
+     */
+    public List<String> keys() {
+        List<String> keys = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            keys.add(paths[i].substring(prefix.length()));
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * @return copy of the view, path -> value, in sorted order.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            map.put(paths[i].substring(prefix.length()), values.get(paths[i]));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return the value as text, or null if there's no value.
+     */
+    public String getString(@NonNull String path) {
+        Object value = values.get(fullPath(path));
+        return value == null ? null : value.toString();
+    }
+
+    public String getString(@NonNull String path, String defaultValue) {
+        String value = getString(path);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @throws NoSuchElementException   if there's no value.
+     * @throws IllegalArgumentException if the value isn't an int.
+     */
+    public int getInt(@NonNull String path) {
+        return (int) toLong(path, require(path), Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+    }
+
+    public int getInt(@NonNull String path, int defaultValue) {
+        Object value = values.get(fullPath(path));
+        return value == null ? defaultValue : (int) toLong(path, value, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+    }
+
+    /**
+     * @throws NoSuchElementException   if there's no value.
+     * @throws IllegalArgumentException if the value isn't a long.
+     */
+    public long getLong(@NonNull String path) {
+        return toLong(path, require(path), Long.MIN_VALUE, Long.MAX_VALUE, "long");
+    }
+
+    public long getLong(@NonNull String path, long defaultValue) {
+        Object value = values.get(fullPath(path));
+        return value == null ? defaultValue : toLong(path, value, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+    }
+
+    /**
+     * @throws NoSuchElementException   if there's no value.
+     * @throws IllegalArgumentException if the value isn't a number.
+     */
+    public double getDouble(@NonNull String path) {
+        return toDouble(path, require(path));
+    }
+
+    public double getDouble(@NonNull String path, double defaultValue) {
+        Object value = values.get(fullPath(path));
+        return value == null ? defaultValue : toDouble(path, value);
+    }
+
+    /**
+     * @throws NoSuchElementException   if there's no value.
+     * @throws IllegalArgumentException if the value isn't `true` or `false`.
+     */
+    public boolean getBoolean(@NonNull String path) {
+        return toBoolean(path, require(path));
+    }
+
+    public boolean getBoolean(@NonNull String path, boolean defaultValue) {
+        Object value = values.get(fullPath(path));
+        return value == null ? defaultValue : toBoolean(path, value);
+    }
+
+    private String fullPath(String path) {
+        return prefix.isEmpty() ? path : prefix + path;
+    }
+
+    private Object require(String path) {
+        Object value = values.get(fullPath(path));
+        if (value == null) {
+            throw new NoSuchElementException("There's no value at `" + fullPath(path) + "`.");
+        }
+        return value;
+    }
+
+    private long toLong(String path, Object value, long min, long max, String type) {
+        long result;
+        if (value instanceof Integer || value instanceof Long) {
+            result = ((Number) value).longValue();
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            result = ((BigInteger) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                result = Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw cantConvert(path, value, type);
+            }
+        } else {
+            throw cantConvert(path, value, type);
+        }
+        if (result < min || result > max) {
+            throw cantConvert(path, value, type);
+        }
+        return result;
+    }
+
+    private double toDouble(String path, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw cantConvert(path, value, "double");
+            }
+        }
+        throw cantConvert(path, value, "double");
+    }
+
+    private boolean toBoolean(String path, Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof String) {
+            String text = ((String) value).trim();
+            if (text.equalsIgnoreCase("true")) {
+                return true;
+            } else if (text.equalsIgnoreCase("false")) {
+                return false;
+            }
+        }
+        throw cantConvert(path, value, "boolean");
+    }
+
+    private IllegalArgumentException cantConvert(String path, Object value, String type) {
+        return new IllegalArgumentException("Can not convert `" + fullPath(path) + "` to " + type + ": " + value);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigView(" + (prefix.isEmpty() ? "" : prefix.substring(0, prefix.length() - 1) + ", ") + size() + " values)";
+    }
+}
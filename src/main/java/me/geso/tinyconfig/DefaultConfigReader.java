@@ -1,24 +1,41 @@
 package me.geso.tinyconfig;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.google.common.collect.ImmutableList;
-import com.google.common.primitives.Primitives;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.lang.reflect.Method;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Thread-safe {@link ConfigReader}. Each read has its own parser state; the object mapper, the binding plans
+ * and the generated binders are shared.
+ */
 @Slf4j
 public class DefaultConfigReader implements ConfigReader {
     private final ObjectMapper objectMapper;
@@ -26,39 +43,369 @@ public class DefaultConfigReader implements ConfigReader {
             new EnvValueLoader(),
             new PropertyValueLoader()
     );
-    private final Yaml yaml;
     private final String configFilePrefix;
     private final String configFileProperty;
     private final String configProfileProperty;
+    private final Duration reloadDelay;
+    private final Executor includeExecutor;
+    // null if there's no listener.
+    private final ConfigReadListener listener;
+    // null if snapshots are disabled.
+    private final SnapshotCache snapshotCache;
+    private final boolean streaming;
+    // empty if the configuration isn't layered.
+    private final List<ConfigLayer> layers;
+    private final boolean incrementalReload;
+    private final boolean compactTree;
+    private final FragmentCache fragmentCache = new FragmentCache();
 
-    DefaultConfigReader(ObjectMapper objectMapper, String configFilePrefix, String configFileProperty, String configProfileProperty) {
+    DefaultConfigReader(ObjectMapper objectMapper, String configFilePrefix, String configFileProperty, String configProfileProperty, Duration reloadDelay, Executor includeExecutor, ConfigReadListener listener, SnapshotCache snapshotCache, boolean streaming, List<ConfigLayer> layers, boolean incrementalReload, boolean compactTree) {
         this.objectMapper = objectMapper;
         this.configFilePrefix = configFilePrefix;
         this.configFileProperty = configFileProperty;
         this.configProfileProperty = configProfileProperty;
-
-        ImportableConstructor importableConstructor = new ImportableConstructor();
-        this.yaml = new Yaml(importableConstructor);
-        importableConstructor.setYaml(yaml);
+        this.reloadDelay = reloadDelay;
+        this.includeExecutor = includeExecutor;
+        this.listener = listener;
+        this.snapshotCache = snapshotCache;
+        this.streaming = streaming;
+        this.layers = layers;
+        this.incrementalReload = incrementalReload;
+        this.compactTree = compactTree;
     }
 
     @Override
     public <T> T read(@NonNull Class<T> klass, @NonNull String profile) throws IOException {
-        Object config = readInternal(profile);
+        if (snapshotCache != null) {
+            return readWithSnapshot(klass, profile);
+        }
+        if (streaming) {
+            return readStreaming(klass, profile);
+        }
+        return bind(readInternal(profile).getTree(), klass);
+    }
+
+    private <T> T readWithSnapshot(Class<T> klass, String profile) throws IOException {
+        List<PathValue> pathValues = scanValues(klass);
+        String location = getLocation(profile);
+        if (location != null) {
+            long start = startPhase(ConfigReadListener.Phase.LOAD);
+            JsonParser parser = snapshotCache.open(klass, profile, location, pathValues);
+            endPhase(ConfigReadListener.Phase.LOAD, start);
+            if (parser != null) {
+                try (JsonParser snapshot = parser) {
+                    return bindSnapshot(snapshot, klass);
+                } catch (IOException e) {
+                    log.warn("Can't read snapshot. Load the configuration instead.", e);
+                }
+            }
+        }
+
+        LoadedConfig loaded = readInternal(profile);
+        Object tree = rewriteValues(loaded.getTree(), pathValues);
+        T config = bindRewritten(tree, klass);
+        if (loaded.isFilesOnly()) {
+            snapshotCache.write(klass, profile, location, loaded.getFiles(), loaded.getStamps(), pathValues, tree);
+        } else {
+            log.debug("Don't write snapshot: the configuration isn't read from files only");
+        }
+        return config;
+    }
+
+    /**
+     * Bind the snapshot, which already has the overrides.
+     */
+    private <T> T bindSnapshot(JsonParser parser, Class<T> klass) throws IOException {
+        checkInterrupted();
+        long start = startPhase(ConfigReadListener.Phase.BIND);
+        try {
+            ConfigBinder<T> binder = ConfigBinders.find(klass);
+            if (binder != null) {
+                Object tree = objectMapper.readValue(parser, Object.class);
+                return binder.bind(tree, BindContext.create(objectMapper, Collections.emptyList()));
+            }
+            return objectMapper.readValue(parser, klass);
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    /**
+     * Read the configuration without building the tree. {@link StreamingConfigParser} applies the overrides and
+     * the includes while Jackson binds the tokens, so the BIND phase includes parsing.
+     */
+    <T> T readStreaming(Class<T> klass, String profile) throws IOException {
+        List<PathValue> pathValues = scanValues(klass);
+        reportOverrides(pathValues);
+
+        checkInterrupted();
+        long start = startPhase(ConfigReadListener.Phase.BIND);
+        try (JsonParser parser = openStreaming(profile, pathValues)) {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            return objectMapper.readValue(parser, klass);
+        } catch (JsonMappingException e) {
+            // Throw include failures as the tree does.
+            if (e.getCause() instanceof ImportableConstructor.YamlImportFailedException
+                    || e.getCause() instanceof ImportableConstructor.YamlImportCycleException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    private JsonParser openStreaming(String profile, List<PathValue> pathValues) throws IOException {
+        YAMLFactory yamlFactory = (YAMLFactory) objectMapper.getFactory();
+        String configFile = System.getProperty(configFileProperty);
+        if (configFile != null) {
+            log.info("Reading configuration from " + configFile);
+            Path path = Paths.get(configFile);
+            return StreamingConfigParser.open(yamlFactory, objectMapper, listener, pathValues,
+                    path.toRealPath().toString(), Files.newInputStream(path));
+        }
+
+        String resourceName = configFilePrefix + profile + ".yml";
+        URL resource = getClass().getClassLoader().getResource(resourceName);
+        if (resource != null) {
+            log.info("Reading configuration from resource: " + resourceName);
+            return StreamingConfigParser.open(yamlFactory, objectMapper, listener, pathValues,
+                    resource.toString(), resource.openStream());
+        }
+
+        throw new IllegalStateException("There's no `" + configFileProperty + "` system profile property and no resource named `" + resourceName + "`.");
+    }
+
+    @Override
+    public <T> T readLazy(@NonNull Class<T> klass, @NonNull String profile) throws IOException {
+        ConfigBinder<T> binder = ConfigBinders.find(klass);
+        if (binder == null) {
+            throw new IllegalArgumentException(klass.getName() + " doesn't have the generated binder. Annotate it with @TinyConfig.");
+        }
+
+        Object tree = readInternal(profile).getTree();
+        BindingPlan plan = binder.getPlan();
+        long start = startPhase(ConfigReadListener.Phase.SCAN);
+        List<PathValue> pathValues = Overrides.resolve(plan.getSection(""), valueLoaders).toPathValues();
+        endPhase(ConfigReadListener.Phase.SCAN, start);
+        reportOverrides(pathValues);
+
+        // Sections may be bound on any thread, later. Their overrides are reported without phases.
+        BindContext context = BindContext.createLazy(objectMapper, pathValues, name -> {
+            List<PathValue> sectionValues = Overrides.resolve(plan.getSection(name), valueLoaders).toPathValues();
+            for (PathValue pathValue : sectionValues) {
+                log.info("Rewrite value: {}", pathValue);
+                if (listener != null) {
+                    listener.onOverride(pathValue);
+                }
+            }
+            return sectionValues;
+        });
+        checkInterrupted();
+        start = startPhase(ConfigReadListener.Phase.BIND);
+        try {
+            return binder.bindLazy(tree, context);
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    @Override
+    public <T> T readLazy(Class<T> klass) throws IOException {
+        return readLazy(klass, getProfile());
+    }
+
+    @Override
+    public ConfigView readView(@NonNull String profile) throws IOException {
+        return view(readInternal(profile).getTree());
+    }
+
+    /**
+     * Build the view of the tree. The tree isn't modified.
+     */
+    ConfigView view(Object tree) {
+        Map<List<String>, Object> leaves = ConfigView.flatten(tree);
+
+        // Only the paths in the tree are looked up by the loaders.
+        long start = startPhase(ConfigReadListener.Phase.SCAN);
+        BindingPlan.Builder builder = BindingPlan.builder(ConfigView.class);
+        for (List<String> path : leaves.keySet()) {
+            builder.leaf(String.class, path.toArray(new String[path.size()]));
+        }
+        List<PathValue> pathValues = Overrides.resolve(builder.build(), valueLoaders).toPathValues();
+        endPhase(ConfigReadListener.Phase.SCAN, start);
+        reportOverrides(pathValues);
+
+        start = startPhase(ConfigReadListener.Phase.BIND);
+        try {
+            for (PathValue pathValue : pathValues) {
+                leaves.put(pathValue.getPath(), pathValue.getValue());
+            }
+            return ConfigView.of(leaves);
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    @Override
+    public ConfigView readView() throws IOException {
+        return readView(getProfile());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> readAsync(@NonNull Class<T> klass, @NonNull String profile, @NonNull Executor executor) {
+        AsyncRead<T> read = new AsyncRead<>(() -> read(klass, profile));
+        executor.execute(read);
+        return read.future;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> readAsync(Class<T> klass, Executor executor) {
+        return readAsync(klass, getProfile(), executor);
+    }
+
+    @Override
+    public ConfigSession openSession(@NonNull String profile) throws IOException {
+        return new ConfigSession(this, readInternal(profile).getTree());
+    }
+
+    @Override
+    public ConfigSession openSession() throws IOException {
+        return openSession(getProfile());
+    }
+
+    @Override
+    public <T> ConfigHandle<T> watch(@NonNull Class<T> klass, @NonNull String profile) throws IOException {
+        ConfigHandle<T> handle = new ConfigHandle<>(this, klass, profile, reloadDelay, incrementalReload);
+        handle.start();
+        return handle;
+    }
+
+    @Override
+    public <T> ConfigHandle<T> watch(Class<T> klass) throws IOException {
+        return watch(klass, getProfile());
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    <T> T bind(Object config, Class<T> klass) throws IOException {
         List<PathValue> pathValues = scanValues(klass);
-        rewriteValues(config, pathValues);
-        String bytes = yaml.dump(config);
-        return this.objectMapper.readValue(bytes, klass);
+        ConfigBinder<T> binder = ConfigBinders.find(klass);
+        if (binder != null) {
+            return bindGenerated(config, pathValues, binder);
+        }
+        config = rewriteValues(config, pathValues);
+        return bindTree(config, klass);
     }
 
-    private void rewriteValues(Object config, List<PathValue> pathValues) {
+    /**
+     * Bind the tree which already has the overrides.
+     */
+    <T> T bindRewritten(Object config, Class<T> klass) throws IOException {
+        ConfigBinder<T> binder = ConfigBinders.find(klass);
+        return binder != null
+                ? bindGenerated(config, Collections.emptyList(), binder)
+                : bindTree(config, klass);
+    }
+
+    /**
+     * Bind the tree by the generated binder. The binder applies the overrides while walking the tree,
+     * so the tree isn't rewritten.
+     */
+    <T> T bindGenerated(Object config, List<PathValue> pathValues, ConfigBinder<T> binder) throws IOException {
+        BindContext context = BindContext.create(objectMapper, pathValues);
+        reportOverrides(pathValues);
+
+        checkInterrupted();
+        long start = startPhase(ConfigReadListener.Phase.BIND);
+        try {
+            return binder.bind(config, context);
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    /**
+     * Report the overrides applied while binding as the REWRITE phase.
+     */
+    private void reportOverrides(List<PathValue> pathValues) {
+        if (pathValues.isEmpty()) {
+            return;
+        }
+        long start = startPhase(ConfigReadListener.Phase.REWRITE);
         for (PathValue pathValue : pathValues) {
-            rewriteValue(config, pathValue);
+            log.info("Rewrite value: {}", pathValue);
+            if (listener != null) {
+                listener.onOverride(pathValue);
+            }
+        }
+        endPhase(ConfigReadListener.Phase.REWRITE, start);
+    }
+
+    <T> T bindTree(Object config, Class<T> klass) throws IOException {
+        checkInterrupted();
+        long start = startPhase(ConfigReadListener.Phase.BIND);
+        try {
+            JsonNode tree = YamlTreeConverter.toTree(config);
+            return this.objectMapper.treeToValue(tree, klass);
+        } finally {
+            endPhase(ConfigReadListener.Phase.BIND, start);
+        }
+    }
+
+    /**
+     * Stop reading between the phases if the thread is interrupted, e.g. by cancelling {@link #readAsync}.
+     */
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while reading configuration");
+        }
+    }
+
+    private long startPhase(ConfigReadListener.Phase phase) {
+        if (listener == null) {
+            return 0;
+        }
+        listener.onPhaseStart(phase);
+        return System.nanoTime();
+    }
+
+    private void endPhase(ConfigReadListener.Phase phase, long start) {
+        if (listener != null) {
+            listener.onPhaseEnd(phase, System.nanoTime() - start);
         }
     }
 
+    /**
+     * Apply the values to the tree. The tree is not modified: maps and lists on the paths to the values are copied,
+     * and the rest of the tree is shared with the result. Elements of lists are overwritten by their indexes,
+     * and values out of the lists are ignored.
+     */
+    Object rewriteValues(Object config, List<PathValue> pathValues) {
+        if (pathValues.isEmpty()) {
+            return config;
+        }
+
+        long start = startPhase(ConfigReadListener.Phase.REWRITE);
+        // Maps and lists copied by this rewrite. These can be modified in place.
+        Set<Object> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object root = config instanceof Map ? copy(config, copied) : config;
+        for (PathValue pathValue : pathValues) {
+            rewriteValue(root, pathValue, copied);
+            if (listener != null) {
+                listener.onOverride(pathValue);
+            }
+        }
+        endPhase(ConfigReadListener.Phase.REWRITE, start);
+        return root;
+    }
+
     @SuppressWarnings("unchecked")
-    private void rewriteValue(Object config, PathValue pathValue) {
+    private void rewriteValue(Object config, PathValue pathValue, Set<Object> copied) {
         log.info("Rewrite value: {}", pathValue);
         Object current = config;
         List<String> path = pathValue.getPath();
@@ -73,10 +420,40 @@ public class DefaultConfigReader implements ConfigReader {
                     ((Map) current).put(item, pathValue.getValue());
                 } else {
                     // `current{item} //= {}`
-                    if (!((Map) current).containsKey(item)) {
-                        ((Map) current).put(item, new LinkedHashMap<>());
+                    Object child = ((Map) current).get(item);
+                    if (child == null && !((Map) current).containsKey(item)) {
+                        if (toIndex(path.get(i + 1), Integer.MAX_VALUE) >= 0) {
+                            log.info("There's no list: {}. Path:{}", item, pathValue);
+                            return;
+                        }
+                        child = new LinkedHashMap<>();
+                        copied.add(child);
+                        ((Map) current).put(item, child);
+                    } else if ((child instanceof Map || child instanceof List) && !copied.contains(child)) {
+                        child = copy(child, copied);
+                        ((Map) current).put(item, child);
                     }
-                    current = ((Map) current).get(item);
+                    current = child;
+                }
+            } else if (current instanceof List) {
+                List<Object> list = (List<Object>) current;
+                int index = toIndex(item, list.size());
+                if (index < 0) {
+                    log.info("There's no element: {}. Path:{}", item, pathValue);
+                    return;
+                }
+                if (last) {
+                    log.info("Put value: {}={}",
+                            path,
+                            pathValue.getValue());
+                    list.set(index, pathValue.getValue());
+                } else {
+                    Object child = list.get(index);
+                    if ((child instanceof Map || child instanceof List) && !copied.contains(child)) {
+                        child = copy(child, copied);
+                        list.set(index, child);
+                    }
+                    current = child;
                 }
             } else {
                 log.info("This element is not a Map: {}. Path:{}", config, pathValue);
@@ -84,87 +461,429 @@ public class DefaultConfigReader implements ConfigReader {
         }
     }
 
+    /**
+     * @return the index of the list, or -1 if the item isn't an index less than the size.
+     */
+    static int toIndex(String item, int size) {
+        if (item.isEmpty() || item.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < item.length(); i++) {
+            if (item.charAt(i) < '0' || item.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        int index = Integer.parseInt(item);
+        return index < size ? index : -1;
+    }
+
+    private static Object copy(Object container, Set<Object> copied) {
+        Object copy = container instanceof Map ? new LinkedHashMap<>((Map<?, ?>) container)
+                : new ArrayList<>((List<?>) container);
+        copied.add(copy);
+        return copy;
+    }
+
     @Override
     public <T> T read(Class<T> klass) throws IOException {
         return read(klass, getProfile());
     }
 
-    private List<PathValue> scanValues(Class<?> klass) {
-        return doScan(klass, Collections.emptyList());
+    List<PathValue> scanValues(Class<?> klass) {
+        long start = startPhase(ConfigReadListener.Phase.SCAN);
+        BindingPlan plan = BindingPlan.of(klass);
+        log.trace("Scanning values for {}", plan);
+        List<PathValue> pathValues = Overrides.resolve(plan, valueLoaders).toPathValues();
+        endPhase(ConfigReadListener.Phase.SCAN, start);
+        return pathValues;
     }
 
-    private <T> List<PathValue> doScan(Class<?> klass, List<String> path) {
-        log.trace("replacing config for {}",
-                klass);
-        List<PathValue> pathValues = new ArrayList<>();
+    LoadedConfig readInternal(String profile) throws IOException {
+        checkInterrupted();
+        long start = startPhase(ConfigReadListener.Phase.LOAD);
         try {
-            BeanInfo beanInfo = Introspector.getBeanInfo(klass, Object.class);
-            for (PropertyDescriptor propertyDescriptor : beanInfo.getPropertyDescriptors()) {
-                Class<?> propertyType = propertyDescriptor.getPropertyType();
-                if (propertyType.isPrimitive() || Primitives.isWrapperType(propertyType) || propertyType == String.class) {
-                    scanSupportedValue(propertyDescriptor, path)
-                            .ifPresent(pathValues::add);
-                } else {
-                    pathValues.addAll(scanValue(propertyDescriptor, path, klass));
+            return load(profile);
+        } finally {
+            endPhase(ConfigReadListener.Phase.LOAD, start);
+        }
+    }
+
+    private LoadedConfig load(String profile) throws IOException {
+        Set<Path> directories = new LinkedHashSet<>();
+        List<Document> documents = resolveDocuments(profile, directories);
+        ImportableConstructor includes = new ImportableConstructor(includeExecutor, listener);
+        List<FutureTask<LoadedConfig>> tasks = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            tasks.add(new FutureTask<>(() -> document.getDirectory() != null
+                    ? loadFragment(document)
+                    : loadDocument(document, includes)));
+        }
+        // The first document is parsed on this thread. Fragments are parsed in parallel even without the executor.
+        for (int i = 1; i < tasks.size(); i++) {
+            Executor executor = includeExecutor != null ? includeExecutor
+                    : documents.get(i).getDirectory() != null ? ForkJoinPool.commonPool() : null;
+            if (executor != null) {
+                try {
+                    executor.execute(tasks.get(i));
+                } catch (RejectedExecutionException e) {
+                    // Run it on this thread.
                 }
             }
-        } catch (IntrospectionException e) {
-            log.info("Can't read bean info: {}({})", klass, e.getMessage());
         }
-        return pathValues;
+
+        Object tree = null;
+        Set<Path> files = new LinkedHashSet<>();
+        Map<Path, FragmentCache.Stamp> stamps = new HashMap<>();
+        boolean filesOnly = true;
+        // fragments merged so far from the directory of the current document, and their trees.
+        List<Document> siblings = new ArrayList<>();
+        List<Object> siblingTrees = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            FutureTask<LoadedConfig> task = tasks.get(i);
+            // Run it on this thread unless the executor has started it already.
+            task.run();
+            LoadedConfig layer = getResult(task);
+            Document document = documents.get(i);
+            if (siblings.isEmpty() || !Objects.equals(siblings.get(0).getDirectory(), document.getDirectory())) {
+                siblings.clear();
+                siblingTrees.clear();
+            }
+            if (layer.getTree() != null) {
+                tree = document.getDirectory() != null
+                        ? mergeFragment(tree, layer.getTree(), document, siblings, siblingTrees)
+                        : ConfigMerger.merge(tree, layer.getTree());
+            }
+            if (document.getDirectory() != null) {
+                siblings.add(document);
+                siblingTrees.add(layer.getTree());
+            }
+            if (document.getFile() != null) {
+                files.add(document.getFile());
+            } else {
+                filesOnly = false;
+            }
+            files.addAll(layer.getFiles());
+            stamps.putAll(layer.getStamps());
+            filesOnly &= layer.isFilesOnly();
+        }
+        // The includes are known only after all documents are loaded.
+        files.addAll(includes.getIncludedFiles());
+        stamps.putAll(includes.getIncludedStamps());
+        filesOnly &= includes.isIncludedFilesOnly();
+        if (compactTree) {
+            tree = CompactTree.compact(tree);
+        }
+        return new LoadedConfig(tree, files, filesOnly, directories, stamps);
     }
 
-    private List<PathValue> scanValue(PropertyDescriptor propertyDescriptor, List<String> path, Class<?> klass) {
-        List<String> newPath = ImmutableList.<String>builder()
-                .addAll(path)
-                .add(propertyDescriptor.getName())
-                .build();
+    /**
+     * Load the root document. Its file is stamped before it's read, so a change during the parse is seen later.
+     */
+    private LoadedConfig loadDocument(Document document, ImportableConstructor includes) throws IOException {
+        Path file = document.getFile();
+        FragmentCache.Stamp stamp = file != null ? FragmentCache.stamp(file) : null;
+        return new LoadedConfig(document.load(includes), ImmutableSet.of(), true, ImmutableSet.of(),
+                stamp != null ? ImmutableMap.of(file, stamp) : ImmutableMap.of());
+    }
+
+    /**
+     * Load the fragment of a directory layer, or reuse it if it isn't modified. Each fragment has its own includes,
+     * so that they're checked with the fragment.
+     */
+    private LoadedConfig loadFragment(Document document) throws IOException {
+        Path file = document.getFile();
+        LoadedConfig cached = fragmentCache.get(file);
+        if (cached != null) {
+            log.debug("Reuse unmodified fragment {}", file);
+            return cached;
+        }
 
-        log.trace("Handling child: {} => {}", klass.getName(), propertyDescriptor.getName());
-        return doScan(propertyDescriptor.getPropertyType(), newPath);
+        Map<Path, FragmentCache.Stamp> stamps = new HashMap<>();
+        FragmentCache.Stamp stamp = FragmentCache.stamp(file);
+        ImportableConstructor includes = new ImportableConstructor(includeExecutor, listener);
+        Object tree = document.load(includes);
+        // The stamps of the includes are taken before they're read, so a change during the parse is seen later.
+        Map<Path, FragmentCache.Stamp> includedStamps = includes.getIncludedStamps();
+        if (stamp != null) {
+            stamps.put(file, stamp);
+        }
+        stamps.putAll(includedStamps);
+        LoadedConfig fragment = new LoadedConfig(tree, includes.getIncludedFiles(), includes.isIncludedFilesOnly(),
+                ImmutableSet.of(), stamps);
+        if (fragment.isFilesOnly() && stamp != null && includedStamps.keySet().containsAll(fragment.getFiles())) {
+            fragmentCache.put(file, stamps, fragment);
+        }
+        return fragment;
     }
 
-    private Optional<PathValue> scanSupportedValue(PropertyDescriptor propertyDescriptor, List<String> path) {
-        Method writeMethod = propertyDescriptor.getWriteMethod();
-        if (writeMethod == null) {
-            log.trace("There's no writer method. Path:{}, Property:{}",
-                    path, propertyDescriptor.getName());
-            return Optional.empty();
+    /**
+     * Merge the fragment, and report the values it overwrites in the earlier fragments of the directory.
+     */
+    private Object mergeFragment(Object tree, Object fragment, Document document, List<Document> siblings,
+                                 List<Object> siblingTrees) {
+        List<List<Object>> conflicts = new ArrayList<>();
+        Object merged = ConfigMerger.merge(tree, fragment, conflicts::add);
+        for (List<Object> path : conflicts) {
+            for (int i = siblings.size() - 1; i >= 0; i--) {
+                if (contains(siblingTrees.get(i), path)) {
+                    List<String> keys = new ArrayList<>(path.size());
+                    for (Object key : path) {
+                        keys.add(YamlTreeConverter.toKey(key));
+                    }
+                    Document previous = siblings.get(i);
+                    log.warn("Conflict at {}: {} overwrites the value in {}", keys, document.getName(), previous.getName());
+                    if (listener != null) {
+                        listener.onConflict(keys, previous.getLocation(), document.getLocation());
+                    }
+                    break;
+                }
+            }
         }
+        return merged;
+    }
 
-        List<String> newPath = ImmutableList.<String>builder()
-                .addAll(path)
-                .add(propertyDescriptor.getName())
-                .build();
+    private static boolean contains(Object tree, List<Object> path) {
+        Object current = tree;
+        for (Object key : path) {
+            if (!(current instanceof Map) || !((Map<?, ?>) current).containsKey(key)) {
+                return false;
+            }
+            current = ((Map<?, ?>) current).get(key);
+        }
+        return true;
+    }
 
-        log.trace("Writing value: {}", newPath);
-        for (ValueLoader valueLoader : valueLoaders) {
-            Optional<PathValue> value = valueLoader.getValue(newPath);
-            if (value.isPresent()) {
-                return value;
+    /**
+     * Wait for the task, and throw its exception as is.
+     */
+    static <V> V getResult(FutureTask<V> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading configuration", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
             }
         }
-        return Optional.empty();
     }
 
-    private Object readInternal(String profile) throws IOException {
+    /**
+     * Find the documents to load, from the lowest layer to the top. The configuration file is the top layer if set.
+     * Without layers, it's the configuration file or the resource of the profile.
+     *
+     * @param directories receives the directories of the directory layers, or null.
+     */
+    private List<Document> resolveDocuments(String profile, Set<Path> directories) throws IOException {
+        List<Document> documents = new ArrayList<>();
+        for (ConfigLayer layer : layers) {
+            String name = layer.getName(profile);
+            if (layer.getType() == ConfigLayer.Type.DIRECTORY) {
+                documents.addAll(fragmentDocuments(name, layer.isOptional(), directories));
+                continue;
+            }
+            Document document = layer.getType() == ConfigLayer.Type.FILE
+                    ? fileDocument(name, layer.isOptional())
+                    : resourceDocument(name);
+            if (document != null) {
+                documents.add(document);
+            } else if (!layer.isOptional()) {
+                throw new IllegalStateException("There's no resource named `" + name + "`.");
+            } else {
+                log.debug("Skip optional layer: {}", name);
+            }
+        }
+
         String configFile = System.getProperty(configFileProperty);
         if (configFile != null) {
-            log.info("Reading configuration from " + configFile);
-            try (BufferedReader reader = Files.newBufferedReader(Paths.get(configFile))) {
-                return yaml.load(reader);
+            documents.add(fileDocument(configFile, false));
+        } else if (layers.isEmpty()) {
+            String resourceName = configFilePrefix + profile + ".yml";
+            Document document = resourceDocument(resourceName);
+            if (document == null) {
+                throw new IllegalStateException("There's no `" + configFileProperty + "` system profile property and no resource named `" + resourceName + "`.");
             }
+            documents.add(document);
         }
+        return documents;
+    }
 
-        String resourceName = configFilePrefix + profile + ".yml";
-        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
-            if (inputStream != null) {
-                log.info("Reading configuration from resource: " + resourceName);
-                return yaml.load(inputStream);
+    /**
+     * @return the document, or null if it's optional and doesn't exist.
+     */
+    private static Document fileDocument(String fileName, boolean optional) throws IOException {
+        Path path = Paths.get(fileName);
+        if (optional && !Files.exists(path)) {
+            return null;
+        }
+        return new Document(fileName, path.toRealPath().toString(), path.toAbsolutePath().normalize(),
+                () -> Files.newBufferedReader(path), null);
+    }
+
+    /**
+     * @return the `*.yml` files in the directory, sorted by name. Empty if it's optional and doesn't exist.
+     */
+    private List<Document> fragmentDocuments(String directoryName, boolean optional, Set<Path> directories) throws IOException {
+        Path directory = Paths.get(directoryName).toAbsolutePath().normalize();
+        if (!Files.isDirectory(directory)) {
+            if (!optional) {
+                throw new IllegalStateException("There's no directory named `" + directoryName + "`.");
             }
+            log.debug("Skip optional layer: {}", directoryName);
+            return Collections.emptyList();
+        }
+        if (directories != null) {
+            directories.add(directory);
         }
 
-        throw new IllegalStateException("There's no `" + configFileProperty + "` system profile property and no resource named `" + resourceName + "`.");
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.yml")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> file.getFileName().toString()));
+        fragmentCache.retain(directory, new HashSet<>(files));
+
+        List<Document> documents = new ArrayList<>(files.size());
+        for (Path file : files) {
+            documents.add(new Document(file.toString(), file.toRealPath().toString(), file,
+                    () -> Files.newBufferedReader(file), directory));
+        }
+        return documents;
+    }
+
+    /**
+     * @return the document, or null if there's no such resource.
+     */
+    private Document resourceDocument(String resourceName) {
+        URL resource = getClass().getClassLoader().getResource(resourceName);
+        if (resource == null) {
+            return null;
+        }
+        Path file = null;
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                file = Paths.get(resource.toURI());
+            } catch (URISyntaxException e) {
+                log.debug("Can't watch resource: {}", resource);
+            }
+        }
+        return new Document("resource: " + resourceName, resource.toString(), file,
+                () -> new UnicodeReader(resource.openStream()), null);
+    }
+
+    /**
+     * @return locations of the documents, or null if they can't be found.
+     */
+    private String getLocation(String profile) {
+        if (layers.isEmpty()) {
+            String configFile = System.getProperty(configFileProperty);
+            if (configFile != null) {
+                return Paths.get(configFile).toAbsolutePath().normalize().toString();
+            }
+            URL resource = getClass().getClassLoader().getResource(configFilePrefix + profile + ".yml");
+            return resource == null ? null : resource.toString();
+        }
+
+        try {
+            List<String> locations = new ArrayList<>();
+            for (Document document : resolveDocuments(profile, null)) {
+                locations.add(document.getLocation());
+            }
+            // Appearing or disappearing optional layers change it, too.
+            return String.join(" + ", locations);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Can't resolve the layers", e);
+            return null;
+        }
+    }
+
+    /**
+     * A read by {@link #readAsync}. Cancelling the future interrupts the reading thread, so the read stops
+     * at the next phase or blocking I/O.
+     */
+    private static final class AsyncRead<T> implements Runnable {
+        private final Callable<T> read;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        // the thread running the read, or null.
+        private Thread runner;
+
+        AsyncRead(Callable<T> read) {
+            this.read = read;
+            future.whenComplete((result, e) -> {
+                if (future.isCancelled()) {
+                    interrupt();
+                }
+            });
+        }
+
+        private synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                future.complete(read.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                if (future.isCancelled()) {
+                    // Don't leave the interrupt to the next task of the executor.
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Opener {
+        Reader open() throws IOException;
+    }
+
+    /**
+     * A root document of the configuration: the configuration file, the resource of the profile, a layer or
+     * a fragment of a directory layer.
+     */
+    @Value
+    private static class Document {
+        private String name;
+        private String location;
+        // the local file of the document, or null.
+        private Path file;
+        private Opener opener;
+        // the directory of the directory layer, or null if it isn't a fragment.
+        private Path directory;
+
+        Object load(ImportableConstructor includes) throws IOException {
+            log.info("Reading configuration from " + name);
+            ImportableConstructor constructor = includes.forDocument(location);
+            try (Reader reader = opener.open()) {
+                return constructor.load(reader);
+            }
+        }
     }
 
     public String getProfile() {
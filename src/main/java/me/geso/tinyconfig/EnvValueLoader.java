@@ -4,6 +4,7 @@ import com.google.common.base.CaseFormat;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -18,7 +19,34 @@ public class EnvValueLoader implements ValueLoader {
 
     @Override
     public Optional<PathValue> getValue(List<String> path) {
-        String name = getName(path);
+        return getValue(path, getName(path));
+    }
+
+    @Override
+    public String getName(BindingPlan.Leaf leaf) {
+        return leaf.getEnvName();
+    }
+
+    @Override
+    public Optional<PathValue> getValue(BindingPlan.Leaf leaf) {
+        return getValue(leaf.getPath(), leaf.getEnvName());
+    }
+
+    /**
+     * Keys of maps are lower camel case, e.g. `PRIMARY` is the key `primary`.
+     */
+    @Override
+    public String getElement(String name) {
+        return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, name);
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        // System.getenv() is an unmodifiable snapshot already.
+        return System.getenv();
+    }
+
+    private Optional<PathValue> getValue(List<String> path, String name) {
         String env = System.getenv(name);
         if (log.isTraceEnabled()) {
             log.trace("environment variable '{}': {}", name, env);
@@ -0,0 +1,78 @@
+package me.geso.tinyconfig;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parsed fragments of the directory layers, kept by {@link DefaultConfigReader}.
+ *
+ * <p>A fragment is reused while the modification times and the sizes of its file and all of its includes
+ * are the same as when it was parsed. Fragments which include resources in jars aren't cached.</p>
+ */
+class FragmentCache {
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @return the fragment, or null if it isn't cached or it's modified.
+     */
+    LoadedConfig get(Path file) throws IOException {
+        Entry entry = entries.get(file);
+        if (entry == null) {
+            return null;
+        }
+        for (Map.Entry<Path, Stamp> stamp : entry.getStamps().entrySet()) {
+            if (!stamp.getValue().equals(stamp(stamp.getKey()))) {
+                entries.remove(file, entry);
+                return null;
+            }
+        }
+        return entry.getFragment();
+    }
+
+    /**
+     * @param stamps stamps of the fragment and its includes. The stamp of the fragment is taken before parsing it.
+     */
+    void put(Path file, Map<Path, Stamp> stamps, LoadedConfig fragment) {
+        entries.put(file, new Entry(stamps, fragment));
+    }
+
+    /**
+     * Forget the fragments removed from the directory.
+     */
+    void retain(Path directory, Set<Path> files) {
+        entries.keySet().removeIf(file -> directory.equals(file.getParent()) && !files.contains(file));
+    }
+
+    /**
+     * @return the stamp, or null if the file doesn't exist.
+     */
+    static Stamp stamp(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Value
+    static class Stamp {
+        private long lastModified;
+        private long size;
+    }
+
+    @Value
+    private static class Entry {
+        private Map<Path, Stamp> stamps;
+        private LoadedConfig fragment;
+    }
+}
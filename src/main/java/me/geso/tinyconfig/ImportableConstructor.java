@@ -1,29 +1,119 @@
 package me.geso.tinyconfig;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
+import lombok.Value;
+import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.AbstractConstruct;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.nodes.MappingNode;
 import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
 import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
 
-import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * SnakeYAML constructor which supports `!file` and `!resource` tags, and `!lines` and `!csv` tags for data files.
+ * Data files aren't parsed on load: they're constructed as {@link MappedLines} and {@link MappedCsv}.
+ *
+ * <p>Each included document is parsed once per constructor, and the parsed tree is reused for
+ * the following includes of the same document. The tree may appear in several places of the result,
+ * so callers must not modify it in place. An include cycle fails with {@link YamlImportCycleException}.</p>
+ *
+ * <p>If the constructor has an {@link Executor}, {@link #load(Reader)} finds the includes in the document
+ * before constructing it, and loads them on the executor concurrently. The result is the same as
+ * the serial one.</p>
+ *
+ * <p>A constructor holds the state of a single load, so create one per load. Loads with different
+ * constructors can run concurrently.</p>
+ */
 public class ImportableConstructor extends SafeConstructor {
+    private static final Tag FILE_TAG = new Tag("!file");
+    private static final Tag RESOURCE_TAG = new Tag("!resource");
+    private static final Tag LINES_TAG = new Tag("!lines");
+    private static final Tag CSV_TAG = new Tag("!csv");
+    // Resolver only reads its patterns after construction, so all loads share it.
+    private static final Resolver RESOLVER = new Resolver();
+
     private Yaml yaml;
+    // shared by the constructors of the included documents.
+    private final IncludeContext context;
+    // task of the document being constructed. null for the root document.
+    private final IncludeTask owner;
+    // locations of the documents being included, from the root document.
+    private List<String> includeChain;
 
     public ImportableConstructor() {
-        this.yamlConstructors.put(new Tag("!file"), new FileConstruct());
-        this.yamlConstructors.put(new Tag("!resource"), new ResourceConstruct());
+        this(null);
+    }
+
+    /**
+     * @param executor executor to load included documents concurrently, or null to load them serially.
+     */
+    public ImportableConstructor(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * @param executor executor to load included documents concurrently, or null to load them serially.
+     * @param listener listener of the included documents, or null.
+     */
+    ImportableConstructor(Executor executor, ConfigReadListener listener) {
+        this(new IncludeContext(executor, listener), null, ImmutableList.of());
+    }
+
+    private ImportableConstructor(IncludeContext context, IncludeTask owner, List<String> includeChain) {
+        this.context = context;
+        this.owner = owner;
+        this.includeChain = includeChain;
+        this.yamlConstructors.put(FILE_TAG, new FileConstruct());
+        this.yamlConstructors.put(RESOURCE_TAG, new ResourceConstruct());
+        this.yamlConstructors.put(LINES_TAG, new DataFileConstruct(MappedLines::open));
+        this.yamlConstructors.put(CSV_TAG, new DataFileConstruct(MappedCsv::open));
     }
 
     public void setYaml(Yaml yaml) {
         this.yaml = yaml;
     }
 
+    /**
+     * Create the {@link Yaml} for the constructor, sharing the immutable parts with other loads.
+     */
+    static Yaml newYaml(ImportableConstructor constructor) {
+        return new Yaml(constructor, new Representer(), new DumperOptions(), RESOLVER);
+    }
+
     public Yaml getYaml() {
         if (this.yaml == null) {
             throw new IllegalStateException("You must set Yaml object to ImportableConstructor.");
@@ -31,13 +121,295 @@ public class ImportableConstructor extends SafeConstructor {
         return this.yaml;
     }
 
+    /**
+     * Files included by `!file` and `!resource` tags so far, including nested ones.
+     * Resources are listed only if they are plain files.
+     */
+    public Set<Path> getIncludedFiles() {
+        synchronized (context.includedFiles) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(context.includedFiles));
+        }
+    }
+
+    /**
+     * Stamps of {@link #getIncludedFiles()}, taken before each file is read first. Missing files have no stamps.
+     */
+    Map<Path, FragmentCache.Stamp> getIncludedStamps() {
+        return Collections.unmodifiableMap(new HashMap<>(context.stamps));
+    }
+
+    /**
+     * @return true if all included documents are in {@link #getIncludedFiles()}.
+     */
+    boolean isIncludedFilesOnly() {
+        return !context.includedNonFiles;
+    }
+
+    /**
+     * Mark the location of the document being loaded, to detect includes of itself.
+     */
+    void setRootLocation(String location) {
+        includeChain = ImmutableList.of(location);
+    }
+
+    /**
+     * Create the constructor of another root document. Includes are shared with this constructor,
+     * and the documents can be loaded concurrently.
+     */
+    ImportableConstructor forDocument(String location) {
+        ImportableConstructor constructor = new ImportableConstructor(context, null, ImmutableList.of(location));
+        constructor.setYaml(newYaml(constructor));
+        return constructor;
+    }
+
+    /**
+     * Load the document, resolving includes concurrently if this constructor has an executor.
+     */
+    Object load(Reader reader) {
+        return construct(getYaml().compose(reader));
+    }
+
+    private Object construct(Node node) {
+        if (node == null) {
+            return null;
+        }
+        prefetch(node);
+        return constructDocument(node);
+    }
+
+    private void prefetch(Node root) {
+        if (context.executor == null) {
+            return;
+        }
+
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (node instanceof MappingNode) {
+                for (NodeTuple tuple : ((MappingNode) node).getValue()) {
+                    stack.add(tuple.getValueNode());
+                    stack.add(tuple.getKeyNode());
+                }
+            } else if (node instanceof SequenceNode) {
+                stack.addAll(((SequenceNode) node).getValue());
+            } else if (node instanceof ScalarNode) {
+                prefetchInclude((ScalarNode) node);
+            }
+        }
+    }
+
+    private void prefetchInclude(ScalarNode node) {
+        Include include;
+        try {
+            if (FILE_TAG.equals(node.getTag())) {
+                include = fileInclude(node.getValue());
+            } else if (RESOURCE_TAG.equals(node.getTag())) {
+                include = resourceInclude(node.getValue());
+            } else {
+                return;
+            }
+        } catch (IOException e) {
+            // Report it on construction.
+            return;
+        }
+
+        String location = include.getKey().getLocation();
+        if (includeChain.contains(location)) {
+            // Report it on construction.
+            return;
+        }
+        IncludeTask task = newTask(include);
+        if (context.cache.putIfAbsent(include.getKey(), task) == null) {
+            try {
+                context.executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Run it on construction.
+            }
+        }
+    }
+
+    private Object include(Include include, Tag tag) throws IOException {
+        String location = include.getKey().getLocation();
+        if (includeChain.contains(location)) {
+            throw new YamlImportCycleException(tag, includeChain, location);
+        }
+
+        IncludeTask task = context.cache.computeIfAbsent(include.getKey(), key -> newTask(include));
+        if (owner != null) {
+            // Running the task on this thread is waiting for it, too.
+            owner.waitingFor = task;
+            List<String> chain = new ArrayList<>(includeChain);
+            Set<IncludeTask> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (IncludeTask waiting = task; waiting != null && visited.add(waiting); waiting = waiting.waitingFor) {
+                if (waiting == owner) {
+                    owner.waitingFor = null;
+                    throw new YamlImportCycleException(tag, chain, owner.location);
+                }
+                chain.add(waiting.location);
+            }
+        }
+
+        try {
+            // Run it on this thread unless the executor has started it already.
+            task.run();
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + location, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        } finally {
+            if (owner != null) {
+                owner.waitingFor = null;
+            }
+        }
+    }
+
+    private IncludeTask newTask(Include include) {
+        List<String> chain = ImmutableList.<String>builder()
+                .addAll(includeChain)
+                .add(include.getKey().getLocation())
+                .build();
+        return new IncludeTask(new IncludeLoader(context, include, chain));
+    }
+
+    private Include fileInclude(String fileName) throws IOException {
+        Path realPath = Paths.get(fileName).toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+        CacheKey key = new CacheKey(realPath.toString(), attributes.lastModifiedTime().toMillis(), attributes.size());
+        return new Include(key, () -> Files.newInputStream(realPath));
+    }
+
+    private Include resourceInclude(String resourceName) throws IOException {
+        URL resource = getClass().getClassLoader().getResource(resourceName);
+        if (resource == null) {
+            throw new FileNotFoundException("There's no resource named " + resourceName);
+        }
+        CacheKey key = new CacheKey(resource.toString(), 0, 0);
+        return new Include(key, resource::openStream);
+    }
+
+    private static class IncludeContext {
+        private final Executor executor;
+        private final ConfigReadListener listener;
+        private final ConcurrentMap<CacheKey, IncludeTask> cache = new ConcurrentHashMap<>();
+        private final Set<Path> includedFiles = Collections.synchronizedSet(new LinkedHashSet<>());
+        // stamps of the included files, taken before they're read.
+        private final ConcurrentMap<Path, FragmentCache.Stamp> stamps = new ConcurrentHashMap<>();
+        // true if a resource outside the file system (e.g. in a jar) is included.
+        private volatile boolean includedNonFiles;
+
+        IncludeContext(Executor executor, ConfigReadListener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void addFile(Path file) throws IOException {
+            includedFiles.add(file);
+            if (!stamps.containsKey(file)) {
+                FragmentCache.Stamp stamp = FragmentCache.stamp(file);
+                if (stamp != null) {
+                    stamps.putIfAbsent(file, stamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads an included document once. Whichever of the executor and the constructor that needs
+     * the document comes first runs it.
+     */
+    private static class IncludeTask extends FutureTask<Object> {
+        private final String location;
+        // The task this task is waiting for. Used to detect include cycles across threads.
+        private volatile IncludeTask waitingFor;
+
+        IncludeTask(IncludeLoader loader) {
+            super(loader);
+            this.location = loader.include.getKey().getLocation();
+            loader.task = this;
+        }
+    }
+
+    private static class IncludeLoader implements Callable<Object> {
+        private final IncludeContext context;
+        private final Include include;
+        private final List<String> includeChain;
+        private IncludeTask task;
+
+        IncludeLoader(IncludeContext context, Include include, List<String> includeChain) {
+            this.context = context;
+            this.include = include;
+            this.includeChain = includeChain;
+        }
+
+        @Override
+        public Object call() throws IOException {
+            ImportableConstructor constructor = new ImportableConstructor(context, task, includeChain);
+            constructor.setYaml(newYaml(constructor));
+
+            ConfigReadListener listener = context.listener;
+            if (listener == null) {
+                Node node;
+                try (Reader reader = new UnicodeReader(include.getOpener().open())) {
+                    node = constructor.getYaml().compose(reader);
+                }
+                return constructor.construct(node);
+            }
+
+            long start = System.nanoTime();
+            Node node;
+            long bytes;
+            try (CountingInputStream inputStream = new CountingInputStream(include.getOpener().open());
+                 Reader reader = new UnicodeReader(inputStream)) {
+                node = constructor.getYaml().compose(reader);
+                bytes = inputStream.getCount();
+            }
+            listener.onInclude(task.location, bytes, System.nanoTime() - start);
+            return constructor.construct(node);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    @Value
+    private static class Include {
+        private CacheKey key;
+        private Opener opener;
+    }
+
+    @Value
+    private static class CacheKey {
+        private String location;
+        private long lastModified;
+        private long size;
+    }
+
     private class FileConstruct extends AbstractConstruct {
         @Override
         public Object construct(Node nnode) {
-            org.yaml.snakeyaml.nodes.ScalarNode snode = (org.yaml.snakeyaml.nodes.ScalarNode) nnode;
+            ScalarNode snode = (ScalarNode) nnode;
             String fileName = snode.getValue();
-            try (BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(fileName))) {
-                return getYaml().load(bufferedReader);
+            try {
+                context.addFile(Paths.get(fileName).toAbsolutePath().normalize());
+                return include(fileInclude(fileName), snode.getTag());
             } catch (IOException e) {
                 throw new YamlImportFailedException(fileName, snode.getTag(), e);
             }
@@ -47,19 +419,61 @@ public class ImportableConstructor extends SafeConstructor {
     private class ResourceConstruct extends AbstractConstruct {
         @Override
         public Object construct(Node nnode) {
-            org.yaml.snakeyaml.nodes.ScalarNode snode = (org.yaml.snakeyaml.nodes.ScalarNode) nnode;
+            ScalarNode snode = (ScalarNode) nnode;
             String resourceName = snode.getValue();
-            try (InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
-                return getYaml().load(resourceAsStream);
+            URL resource = getClass().getClassLoader().getResource(resourceName);
+            try {
+                if (resource != null && "file".equals(resource.getProtocol())) {
+                    try {
+                        context.addFile(Paths.get(resource.toURI()));
+                    } catch (URISyntaxException e) {
+                        // not watchable. ignore.
+                        context.includedNonFiles = true;
+                    }
+                } else {
+                    context.includedNonFiles = true;
+                }
+                return include(resourceInclude(resourceName), snode.getTag());
             } catch (IOException e) {
                 throw new YamlImportFailedException(resourceName, snode.getTag(), e);
             }
         }
     }
 
+    @FunctionalInterface
+    private interface DataFileOpener {
+        Object open(Path path) throws IOException;
+    }
+
+    private class DataFileConstruct extends AbstractConstruct {
+        private final DataFileOpener opener;
+
+        DataFileConstruct(DataFileOpener opener) {
+            this.opener = opener;
+        }
+
+        @Override
+        public Object construct(Node nnode) {
+            ScalarNode snode = (ScalarNode) nnode;
+            String fileName = snode.getValue();
+            try {
+                context.addFile(Paths.get(fileName).toAbsolutePath().normalize());
+                return opener.open(Paths.get(fileName));
+            } catch (IOException e) {
+                throw new YamlImportFailedException(fileName, snode.getTag(), e);
+            }
+        }
+    }
+
     public static class YamlImportFailedException extends RuntimeException {
         public YamlImportFailedException(String fileName, Tag tag, IOException cause) {
             super("Cannot load " + tag.getValue() + " from " + fileName + " : " + cause.getClass().getCanonicalName() + " : " + cause.getMessage(), cause);
         }
     }
+
+    public static class YamlImportCycleException extends RuntimeException {
+        public YamlImportCycleException(Tag tag, Iterable<String> chain, String location) {
+            super("Cannot load " + tag.getValue() + " from " + location + " : include cycle detected: " + String.join(" -> ", chain) + " -> " + location);
+        }
+    }
 }
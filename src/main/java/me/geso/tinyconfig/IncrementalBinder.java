@@ -0,0 +1,144 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Primitives;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Rebinds the changed sections of a reloaded configuration, and reuses the objects of the unchanged ones.
+ *
+ * <p>A section is reused if nothing under its path changed. A changed mapping bound to a Java bean is rebound
+ * the same way, recursively. The rest of the mapping, without the reused sections, is bound as usual, and then
+ * the reused objects are set by the setters. Properties are resolved the same way as the {@code ObjectMapper}
+ * does, e.g. by `@JsonProperty`. Classes bound by creators are bound again as a whole.</p>
+ */
+@Slf4j
+class IncrementalBinder {
+    private final DefaultConfigReader reader;
+    // name in the configuration -> property with a getter and a setter, per class.
+    private final ConcurrentMap<Class<?>, Map<String, BeanPropertyDefinition>> properties = new ConcurrentHashMap<>();
+
+    IncrementalBinder(DefaultConfigReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param previous     configuration bound from the previous tree.
+     * @param previousTree previous tree, with the overrides.
+     * @param tree         new tree, with the overrides.
+     * @param changes      changes from the previous tree to the new one.
+     */
+    <T> T rebind(T previous, Object previousTree, Object tree, Class<T> klass, ConfigChanges changes) throws IOException {
+        return klass.cast(rebind(previous, previousTree, tree, klass, ImmutableList.of(), changes));
+    }
+
+    private Object rebind(Object previous, Object previousTree, Object tree, Class<?> type, List<String> path,
+                          ConfigChanges changes) throws IOException {
+        if (!changes.isChanged(path)) {
+            return previous;
+        }
+        if (previous == null || !(previousTree instanceof Map) || !(tree instanceof Map) || !isBean(type)) {
+            return reader.bindRewritten(tree, type);
+        }
+
+        Map<?, ?> previousMap = (Map<?, ?>) previousTree;
+        Map<?, ?> map = (Map<?, ?>) tree;
+        Map<String, BeanPropertyDefinition> properties = getProperties(type);
+        if (properties.isEmpty()) {
+            return reader.bindRewritten(tree, type);
+        }
+        Map<Object, Object> rest = new LinkedHashMap<>(map);
+        Map<BeanPropertyDefinition, Object> sections = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object value = entry.getValue();
+                BeanPropertyDefinition property = properties.get(entry.getKey());
+                // Scalars are cheap to bind again.
+                if (property == null || !(value instanceof Map || value instanceof Collection)) {
+                    continue;
+                }
+
+                List<String> childPath = ImmutableList.<String>builder()
+                        .addAll(path)
+                        .add((String) entry.getKey())
+                        .build();
+                if (!changes.isChanged(childPath)) {
+                    sections.put(property, property.getGetter().getValue(previous));
+                    rest.remove(entry.getKey());
+                } else if (value instanceof Map && previousMap.get(entry.getKey()) instanceof Map
+                        && isBean(property.getGetter().getRawType())) {
+                    Object section = rebind(property.getGetter().getValue(previous), previousMap.get(entry.getKey()),
+                            value, property.getGetter().getRawType(), childPath, changes);
+                    sections.put(property, section);
+                    rest.remove(entry.getKey());
+                }
+            }
+
+            Object bound = reader.bindRewritten(rest, type);
+            if (bound == null) {
+                return null;
+            }
+            for (Map.Entry<BeanPropertyDefinition, Object> section : sections.entrySet()) {
+                section.getKey().getSetter().setValue(bound, section.getValue());
+            }
+            log.debug("Rebound {} at {}, reused {}", type.getName(), path, sectionNames(sections));
+            return bound;
+        } catch (IOException | IllegalArgumentException e) {
+            // e.g. a required property of the reused section is missing in the rest.
+            log.info("Can't reuse the sections of {} at {}. Bind it again.", type.getName(), path, e);
+            return reader.bindRewritten(tree, type);
+        }
+    }
+
+    /**
+     * @return properties which can be reused, or empty if the class is bound by a creator.
+     */
+    private Map<String, BeanPropertyDefinition> getProperties(Class<?> type) {
+        Map<String, BeanPropertyDefinition> cached = properties.get(type);
+        if (cached != null) {
+            return cached;
+        }
+        return properties.computeIfAbsent(type, key -> {
+            DeserializationConfig config = reader.getObjectMapper().getDeserializationConfig();
+            BeanDescription description = config.introspect(config.constructType(type));
+            ImmutableMap.Builder<String, BeanPropertyDefinition> builder = ImmutableMap.builder();
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                if (property.hasConstructorParameter()) {
+                    return ImmutableMap.of();
+                }
+                if (property.hasGetter() && property.hasSetter()) {
+                    builder.put(property.getName(), property);
+                }
+            }
+            return builder.build();
+        });
+    }
+
+    private static List<String> sectionNames(Map<BeanPropertyDefinition, Object> sections) {
+        List<String> names = new ArrayList<>(sections.size());
+        for (BeanPropertyDefinition property : sections.keySet()) {
+            names.add(property.getName());
+        }
+        return names;
+    }
+
+    // Configuration classes: not scalars, collections or JDK classes.
+    private static boolean isBean(Class<?> type) {
+        return !(type.isPrimitive() || Primitives.isWrapperType(type) || type.isArray() || type.isEnum()
+                || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+                || type.getName().startsWith("java.") || type.getName().startsWith("javax."));
+    }
+}
@@ -0,0 +1,64 @@
+package me.geso.tinyconfig;
+
+import java.util.function.IntFunction;
+
+/**
+ * Hash index from the keys of rows to their indexes, for {@link MappedLines} and {@link MappedCsv}.
+ *
+ * <p>It keeps only the hash codes and the indexes, not the keys. A lookup reads the candidate keys again.</p>
+ */
+class KeyIndex {
+    private final int[] hashes;
+    // row index + 1 at each slot, or 0 if the slot is empty.
+    private final int[] rows;
+    private final int mask;
+
+    private KeyIndex(int capacity) {
+        this.hashes = new int[capacity];
+        this.rows = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @param keys key of each row, or null to leave the row out.
+     */
+    static KeyIndex build(int size, IntFunction<String> keys) {
+        // Keep the load factor at most 1/2.
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        KeyIndex index = new KeyIndex(capacity);
+        for (int row = 0; row < size; row++) {
+            String key = keys.apply(row);
+            if (key != null) {
+                index.add(key.hashCode(), row);
+            }
+        }
+        return index;
+    }
+
+    private void add(int hash, int row) {
+        int slot = spread(hash) & mask;
+        while (rows[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        rows[slot] = row + 1;
+    }
+
+    /**
+     * @return the first row with the key, or -1.
+     */
+    int indexOf(String key, IntFunction<String> keys) {
+        int hash = key.hashCode();
+        // Rows with the same key are probed in the order of the rows.
+        for (int slot = spread(hash) & mask; rows[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && key.equals(keys.apply(rows[slot] - 1))) {
+                return rows[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
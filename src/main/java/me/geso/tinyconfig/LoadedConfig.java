@@ -0,0 +1,31 @@
+package me.geso.tinyconfig;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuration tree loaded by {@link DefaultConfigReader}, before overrides and binding.
+ */
+@Value
+class LoadedConfig {
+    private Object tree;
+    /**
+     * Local files the tree was read from: the configuration file itself and all included files.
+     */
+    private Set<Path> files;
+    /**
+     * true if the tree was read only from {@link #files}, not from resources in jars.
+     */
+    private boolean filesOnly;
+    /**
+     * Directories of the directory layers. Adding or removing a fragment in them changes the tree.
+     */
+    private Set<Path> directories;
+    /**
+     * Stamps of {@link #files}, taken before each file is read. Files missing when they're read have no stamps.
+     */
+    private Map<Path, FragmentCache.Stamp> stamps;
+}
@@ -0,0 +1,176 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-only rows of a CSV file, included by the `!csv` tag.
+ *
+ * <p>Each line is a row, parsed into its fields when it's read. Fields are separated by commas, and may be quoted
+ * by double quotes, with `""` for a quote. Quoted fields can't have line breaks. There's no header row.
+ * The file is memory-mapped the same way as {@link MappedLines}, and {@link #find(String)} builds a hash index of
+ * the first fields on its first call.</p>
+ */
+@JsonSerialize(using = MappedCsv.Serializer.class)
+@JsonDeserialize(using = MappedCsv.Deserializer.class)
+public final class MappedCsv implements Iterable<List<String>> {
+    private final MappedLines lines;
+    // null until the first lookup.
+    private volatile KeyIndex index;
+
+    private MappedCsv(MappedLines lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Open the file. It's mapped on the first access.
+     */
+    public static MappedCsv open(Path path) throws IOException {
+        return new MappedCsv(MappedLines.open(path));
+    }
+
+    public Path getPath() {
+        return lines.getPath();
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    /**
+     * @return fields of the row.
+     * @throws IndexOutOfBoundsException if the index is out of the rows.
+     */
+    public List<String> get(int index) {
+        return parse(lines.get(index));
+    }
+
+    /**
+     * @return the first row whose first field is the key, or null.
+     */
+    public List<String> find(String key) {
+        KeyIndex index = this.index;
+        if (index == null) {
+            synchronized (this) {
+                index = this.index;
+                if (index == null) {
+                    index = KeyIndex.build(size(), this::getKey);
+                    this.index = index;
+                }
+            }
+        }
+        int row = index.indexOf(key, this::getKey);
+        return row < 0 ? null : get(row);
+    }
+
+    private String getKey(int row) {
+        return get(row).get(0);
+    }
+
+    @Override
+    public Iterator<List<String>> iterator() {
+        Iterator<String> iterator = lines.iterator();
+        return new Iterator<List<String>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return parse(iterator.next());
+            }
+        };
+    }
+
+    static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return ImmutableList.copyOf(fields);
+    }
+
+    /**
+     * Same file, unless it's modified after it's opened.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof MappedCsv && lines.equals(((MappedCsv) o).lines));
+    }
+
+    @Override
+    public int hashCode() {
+        return lines.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return lines.toString();
+    }
+
+    static class Serializer extends StdSerializer<MappedCsv> {
+        Serializer() {
+            super(MappedCsv.class);
+        }
+
+        @Override
+        public void serialize(MappedCsv value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(value.getPath().toString());
+        }
+    }
+
+    /**
+     * Accepts the instance from the configuration tree, or the path of a file.
+     */
+    static class Deserializer extends StdDeserializer<MappedCsv> {
+        Deserializer() {
+            super(MappedCsv.class);
+        }
+
+        @Override
+        public MappedCsv deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT && p.getEmbeddedObject() instanceof MappedCsv) {
+                return (MappedCsv) p.getEmbeddedObject();
+            } else if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+                return open(Paths.get(p.getText()));
+            }
+            return (MappedCsv) ctxt.handleUnexpectedToken(MappedCsv.class, p);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Read-only lines of a file, included by the `!lines` tag.
+ *
+ * <p>The file is memory-mapped and indexed on the first access, and each line is decoded as UTF-8 when it's read,
+ * so a large file adds little to the heap or to the time to read the configuration. {@link #indexOf(String)}
+ * builds a hash index of the lines on its first call. Lines are separated by LF or CRLF.</p>
+ *
+ * <p>Bind it to a property of this type. Overriding the property with a path reads that file instead.
+ * Files up to 2 GB are supported. Replace the file, e.g. by renaming a new one over it, rather than rewriting it
+ * in place: a rewrite changes the lines under the configurations already read. The first access fails with
+ * {@link UncheckedIOException} if the file is replaced or modified after the configuration is read; read the
+ * configuration again to get the new file.</p>
+ */
+@JsonSerialize(using = MappedLines.Serializer.class)
+@JsonDeserialize(using = MappedLines.Deserializer.class)
+public final class MappedLines implements Iterable<String> {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    // identity of the file, e.g. the inode. null if the file system doesn't have it.
+    private final Object fileKey;
+    // null until the first access.
+    private volatile Mapping mapping;
+    private volatile KeyIndex index;
+
+    private MappedLines(Path path, long size, long lastModified, Object fileKey) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Open the file. It's mapped on the first access.
+     */
+    public static MappedLines open(Path path) throws IOException {
+        Path realPath = path.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+        if (attributes.size() > Integer.MAX_VALUE) {
+            throw new IOException("Too large to map: " + realPath + " (" + attributes.size() + " bytes)");
+        }
+        return new MappedLines(realPath, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                attributes.fileKey());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        return mapping().lines;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the index is out of the lines.
+     * @throws UncheckedIOException      if the file is replaced or modified before its first access.
+     */
+    public String get(int index) {
+        Mapping mapping = mapping();
+        if (index < 0 || index >= mapping.lines) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mapping.lines);
+        }
+        return mapping.get(index);
+    }
+
+    /**
+     * @return index of the first line equal to the string, or -1.
+     */
+    public int indexOf(String line) {
+        KeyIndex index = this.index;
+        if (index == null) {
+            synchronized (this) {
+                index = this.index;
+                if (index == null) {
+                    index = KeyIndex.build(size(), this::get);
+                    this.index = index;
+                }
+            }
+        }
+        return index.indexOf(line, this::get);
+    }
+
+    public boolean contains(String line) {
+        return indexOf(line) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private final Mapping mapping = mapping();
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < mapping.lines;
+            }
+
+            @Override
+            public String next() {
+                if (next >= mapping.lines) {
+                    throw new NoSuchElementException();
+                }
+                return mapping.get(next++);
+            }
+        };
+    }
+
+    private Mapping mapping() {
+        Mapping mapping = this.mapping;
+        if (mapping == null) {
+            synchronized (this) {
+                mapping = this.mapping;
+                if (mapping == null) {
+                    try {
+                        mapping = new Mapping(this);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Can't map " + path, e);
+                    }
+                    this.mapping = mapping;
+                }
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Same file, unless it's modified after it's opened.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MappedLines)) {
+            return false;
+        }
+        MappedLines that = (MappedLines) o;
+        return size == that.size && lastModified == that.lastModified && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, size, lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    private static class Mapping {
+        private final ByteBuffer buffer;
+        private final int lines;
+        // starts[i] is the start of the line i. starts[lines] is past the end of the last line's terminator.
+        private final int[] starts;
+
+        Mapping(MappedLines file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+                // Checked after opening: if the file is replaced later, the channel still reads this one.
+                BasicFileAttributes attributes = Files.readAttributes(file.path, BasicFileAttributes.class);
+                if (channel.size() != file.size || attributes.size() != file.size
+                        || attributes.lastModifiedTime().toMillis() != file.lastModified
+                        || !Objects.equals(attributes.fileKey(), file.fileKey)) {
+                    throw new IOException("Modified after it's opened: " + file.path);
+                }
+                // The mapping stays valid after the channel is closed.
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.size);
+            }
+
+            int limit = buffer.limit();
+            int[] starts = new int[16];
+            int lines = 0;
+            int start = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (lines + 1 >= starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[lines++] = start;
+                    start = i + 1;
+                }
+            }
+            if (start < limit) {
+                // The last line without a terminator.
+                if (lines + 1 >= starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length + 1);
+                }
+                starts[lines++] = start;
+                start = limit + 1;
+            }
+            starts[lines] = start;
+            this.lines = lines;
+            this.starts = lines + 1 == starts.length ? starts : Arrays.copyOf(starts, lines + 1);
+        }
+
+        String get(int index) {
+            int start = starts[index];
+            int end = starts[index + 1] - 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            byte[] bytes = new byte[end - start];
+            // Readers share the buffer, so don't move its position.
+            ByteBuffer line = buffer.duplicate();
+            line.position(start);
+            line.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    static class Serializer extends StdSerializer<MappedLines> {
+        Serializer() {
+            super(MappedLines.class);
+        }
+
+        @Override
+        public void serialize(MappedLines value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(value.getPath().toString());
+        }
+    }
+
+    /**
+     * Accepts the instance from the configuration tree, or the path of a file.
+     */
+    static class Deserializer extends StdDeserializer<MappedLines> {
+        Deserializer() {
+            super(MappedLines.class);
+        }
+
+        @Override
+        public MappedLines deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() == JsonToken.VALUE_EMBEDDED_OBJECT && p.getEmbeddedObject() instanceof MappedLines) {
+                return (MappedLines) p.getEmbeddedObject();
+            } else if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+                return open(Paths.get(p.getText()));
+            }
+            return (MappedLines) ctxt.handleUnexpectedToken(MappedLines.class, p);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package me.geso.tinyconfig;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigReadListener} which records the events to Dropwizard Metrics' {@link MetricRegistry}.
+ * metrics-core is an optional dependency. Add it to your project to use this listener.
+ *
+ * <ul>
+ * <li>{@code <prefix>.phase.load}, {@code .scan}, {@code .rewrite}, {@code .bind}: timers of the phases.</li>
+ * <li>{@code <prefix>.include}: timer of reading and parsing included documents.</li>
+ * <li>{@code <prefix>.include.bytes}: histogram of the sizes of included documents.</li>
+ * <li>{@code <prefix>.override.<ValueLoader>}: counter of the overrides by each {@link ValueLoader},
+ * e.g. {@code tinyconfig.override.EnvValueLoader}.</li>
+ * </ul>
+ */
+public class MetricsConfigReadListener implements ConfigReadListener {
+    public static final String DEFAULT_PREFIX = "tinyconfig";
+
+    private final MetricRegistry registry;
+    private final String prefix;
+
+    public MetricsConfigReadListener(MetricRegistry registry) {
+        this(registry, DEFAULT_PREFIX);
+    }
+
+    public MetricsConfigReadListener(MetricRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void onPhaseEnd(Phase phase, long elapsedNanos) {
+        registry.timer(MetricRegistry.name(prefix, "phase", phase.name().toLowerCase(Locale.ROOT)))
+                .update(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onInclude(String location, long bytes, long elapsedNanos) {
+        registry.timer(MetricRegistry.name(prefix, "include"))
+                .update(elapsedNanos, TimeUnit.NANOSECONDS);
+        registry.histogram(MetricRegistry.name(prefix, "include", "bytes"))
+                .update(bytes);
+    }
+
+    @Override
+    public void onOverride(PathValue pathValue) {
+        registry.counter(MetricRegistry.name(prefix, "override", pathValue.getValueLoader().getSimpleName()))
+                .inc();
+    }
+}
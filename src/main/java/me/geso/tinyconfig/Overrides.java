@@ -0,0 +1,157 @@
+package me.geso.tinyconfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Values for the leaves of {@link BindingPlan}, resolved by the list of {@link ValueLoader}s at once.
+ *
+ * <p>Each loader takes a single snapshot of its values. The loader walks the leaves and looks them up
+ * in the snapshot, or walks the snapshot and looks the names up in the index of the plan,
+ * whichever is smaller. Loaders earlier in the list win.</p>
+ *
+ * <p>Values of the element leaves are found by matching the names in the snapshot against
+ * {@link BindingPlan.ElementIndex}. Loaders without snapshots can't override elements.</p>
+ */
+@Slf4j
+final class Overrides {
+    private final BindingPlan plan;
+    private final List<ValueLoader> valueLoaders;
+    private final String[] values;
+    // index of the loader in valueLoaders which provided the value, or -1.
+    private final int[] sources;
+    private int count;
+    // path of the element -> value. Filled in the order of the loaders.
+    private final Map<List<String>, PathValue> elementValues = new LinkedHashMap<>();
+
+    private Overrides(BindingPlan plan, List<ValueLoader> valueLoaders) {
+        this.plan = plan;
+        this.valueLoaders = valueLoaders;
+        int size = plan.getLeaves().size();
+        this.values = new String[size];
+        this.sources = new int[size];
+        Arrays.fill(sources, -1);
+    }
+
+    static Overrides resolve(BindingPlan plan, List<ValueLoader> valueLoaders) {
+        Overrides overrides = new Overrides(plan, valueLoaders);
+        for (int i = 0; i < valueLoaders.size(); i++) {
+            overrides.load(i);
+        }
+        return overrides;
+    }
+
+    private void load(int loaderIndex) {
+        ValueLoader valueLoader = valueLoaders.get(loaderIndex);
+        List<BindingPlan.Leaf> leaves = plan.getLeaves();
+        if (log.isTraceEnabled()) {
+            for (BindingPlan.Leaf leaf : leaves) {
+                log.trace("{} name of {}: '{}'", valueLoader.getClass().getSimpleName(), leaf.getPath(), valueLoader.getName(leaf));
+            }
+        }
+
+        Map<String, String> snapshot = valueLoader.snapshot();
+        if (snapshot == null) {
+            for (int i = 0; i < leaves.size(); i++) {
+                if (values[i] == null && !leaves.get(i).isElement()) {
+                    Optional<PathValue> value = valueLoader.getValue(leaves.get(i));
+                    if (value.isPresent()) {
+                        set(i, loaderIndex, value.get().getValue());
+                    }
+                }
+            }
+            return;
+        }
+
+        BindingPlan.ElementIndex elementIndex = plan.getElementIndex(valueLoader);
+        if (snapshot.size() < leaves.size()) {
+            Map<String, int[]> nameIndex = plan.getNameIndex(valueLoader);
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                int[] positions = nameIndex.get(entry.getKey());
+                if (positions != null) {
+                    for (int position : positions) {
+                        if (values[position] == null) {
+                            set(position, loaderIndex, entry.getValue());
+                        }
+                    }
+                }
+                if (!elementIndex.isEmpty()) {
+                    loadElements(entry.getKey(), entry.getValue(), valueLoader, elementIndex);
+                }
+            }
+        } else {
+            for (int i = 0; i < leaves.size(); i++) {
+                if (values[i] == null && !leaves.get(i).isElement()) {
+                    String value = snapshot.get(valueLoader.getName(leaves.get(i)));
+                    if (value != null) {
+                        set(i, loaderIndex, value);
+                    }
+                }
+            }
+            if (!elementIndex.isEmpty()) {
+                for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                    loadElements(entry.getKey(), entry.getValue(), valueLoader, elementIndex);
+                }
+            }
+        }
+    }
+
+    private void loadElements(String name, String value, ValueLoader valueLoader, BindingPlan.ElementIndex elementIndex) {
+        for (List<String> path : elementIndex.match(name)) {
+            elementValues.putIfAbsent(path, new PathValue(path, value, valueLoader.getClass()));
+        }
+    }
+
+    private void set(int position, int loaderIndex, String value) {
+        values[position] = value;
+        sources[position] = loaderIndex;
+        count++;
+    }
+
+    BindingPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Number of leaves which have a value.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the value of the leaf at the position, or null.
+     */
+    String getValue(int position) {
+        return values[position];
+    }
+
+    /**
+     * @return the loader which provided the value of the leaf at the position, or null.
+     */
+    ValueLoader getValueLoader(int position) {
+        int source = sources[position];
+        return source < 0 ? null : valueLoaders.get(source);
+    }
+
+    /**
+     * @return values of the leaves, and then the values of the elements.
+     */
+    List<PathValue> toPathValues() {
+        List<PathValue> pathValues = new ArrayList<>(count + elementValues.size());
+        List<BindingPlan.Leaf> leaves = plan.getLeaves();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                pathValues.add(new PathValue(leaves.get(i).getPath(), values[i], valueLoaders.get(sources[i]).getClass()));
+            }
+        }
+        pathValues.addAll(elementValues.values());
+        return pathValues;
+    }
+}
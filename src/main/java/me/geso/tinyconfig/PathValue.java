@@ -4,8 +4,11 @@ import lombok.Value;
 
 import java.util.List;
 
+/**
+ * Value of the configuration path, loaded by {@link ValueLoader}.
+ */
 @Value
-class PathValue {
+public class PathValue {
     private List<String> path;
     private String value;
     private Class<? extends ValueLoader> valueLoader;
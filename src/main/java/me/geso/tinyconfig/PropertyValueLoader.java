@@ -2,8 +2,11 @@ package me.geso.tinyconfig;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.stream.Collectors;
 
 /**
@@ -19,7 +22,33 @@ public class PropertyValueLoader implements ValueLoader {
 
     @Override
     public Optional<PathValue> getValue(List<String> path) {
-        String name = getName(path);
+        return getValue(path, getName(path));
+    }
+
+    @Override
+    public String getName(BindingPlan.Leaf leaf) {
+        return leaf.getPropertyName();
+    }
+
+    @Override
+    public Optional<PathValue> getValue(BindingPlan.Leaf leaf) {
+        return getValue(leaf.getPath(), leaf.getPropertyName());
+    }
+
+    @Override
+    public Map<String, String> snapshot() {
+        Properties properties = System.getProperties();
+        Map<String, String> snapshot = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name);
+            if (value != null) {
+                snapshot.put(name, value);
+            }
+        }
+        return snapshot;
+    }
+
+    private Optional<PathValue> getValue(List<String> path, String name) {
         String property = System.getProperty(name);
         if (log.isTraceEnabled()) {
             log.trace("property value '{}': {}", name, property);
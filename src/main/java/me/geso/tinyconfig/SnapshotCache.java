@@ -0,0 +1,172 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk cache of the effective configuration trees, in Smile format.
+ *
+ * <p>A snapshot is stored per configuration class and profile. Its header has the location of the configuration,
+ * the size and the modification time of every source file, and a hash of the overrides. The snapshot is used
+ * only if all of them are still the same. Snapshots contain the overridden values, so files are created
+ * readable only by the owner.</p>
+ */
+@Slf4j
+class SnapshotCache {
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final SmileFactory smileFactory = new SmileFactory();
+    private final ObjectMapper smileMapper = new ObjectMapper(smileFactory);
+
+    SnapshotCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open the snapshot if it's fresh.
+     *
+     * @return the parser positioned at the tree, or null if there's no fresh snapshot.
+     */
+    JsonParser open(Class<?> klass, String profile, String location, List<PathValue> pathValues) {
+        Path file = getFile(klass, profile);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            JsonParser parser = smileFactory.createParser(new ByteBufferBackedInputStream(buffer));
+            parser.nextToken();
+            JsonNode header = smileMapper.readTree(parser);
+            if (!isFresh(header, location, pathValues)) {
+                log.info("Snapshot {} is stale", file);
+                parser.close();
+                return null;
+            }
+            parser.nextToken();
+            log.info("Reading configuration from snapshot: {}", file);
+            return parser;
+        } catch (NoSuchFileException e) {
+            log.debug("There's no snapshot {}", file);
+            return null;
+        } catch (IOException e) {
+            log.warn("Can't read snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot of the tree. Failures are logged and ignored.
+     *
+     * @param stamps the stamps of the files, taken before they're read. A file changed after that is seen
+     *               as modified by {@link #open}.
+     */
+    void write(Class<?> klass, String profile, String location, Set<Path> files, Map<Path, FragmentCache.Stamp> stamps,
+               List<PathValue> pathValues, Object tree) {
+        Path file = getFile(klass, profile);
+        Path temporary = null;
+        try {
+            ObjectNode header = JsonNodeFactory.instance.objectNode();
+            header.put("version", VERSION);
+            header.put("location", location);
+            header.put("overrides", hash(pathValues));
+            ArrayNode sources = header.putArray("files");
+            for (Path source : files) {
+                FragmentCache.Stamp stamp = stamps.get(source);
+                if (stamp == null) {
+                    log.info("Don't write snapshot: {} isn't stamped before it's read", source);
+                    return;
+                }
+                sources.addObject()
+                        .put("path", source.toString())
+                        .put("size", stamp.getSize())
+                        .put("lastModified", stamp.getLastModified());
+            }
+
+            Files.createDirectories(directory);
+            // Temporary files are readable only by the owner.
+            temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary);
+                 JsonGenerator generator = smileFactory.createGenerator(out)) {
+                smileMapper.writeTree(generator, header);
+                smileMapper.writeTree(generator, YamlTreeConverter.toTree(tree));
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote snapshot {}", file);
+        } catch (IOException e) {
+            log.warn("Can't write snapshot {}", file, e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e2) {
+                    log.debug("Can't delete {}", temporary, e2);
+                }
+            }
+        }
+    }
+
+    Path getFile(Class<?> klass, String profile) {
+        return directory.resolve(klass.getName() + "-" + profile + ".smile");
+    }
+
+    private boolean isFresh(JsonNode header, String location, List<PathValue> pathValues) throws IOException {
+        if (header.path("version").asInt() != VERSION
+                || !location.equals(header.path("location").asText())
+                || !hash(pathValues).equals(header.path("overrides").asText())) {
+            return false;
+        }
+        for (JsonNode source : header.path("files")) {
+            Path path = Paths.get(source.path("path").asText());
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                log.debug("{} is removed", path);
+                return false;
+            }
+            if (attributes.size() != source.path("size").asLong()
+                    || attributes.lastModifiedTime().toMillis() != source.path("lastModified").asLong()) {
+                log.debug("{} is modified", path);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hash(List<PathValue> pathValues) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (PathValue pathValue : pathValues) {
+            for (String name : pathValue.getPath()) {
+                hasher.putInt(name.length()).putString(name, StandardCharsets.UTF_8);
+            }
+            hasher.putInt(-1)
+                    .putInt(pathValue.getValue().length())
+                    .putString(pathValue.getValue(), StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+}
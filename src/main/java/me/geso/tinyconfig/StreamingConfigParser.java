@@ -0,0 +1,488 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.yaml.PackageVersion;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLParser;
+import com.google.common.io.CountingInputStream;
+import org.yaml.snakeyaml.nodes.Tag;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link JsonParser} which reads a YAML configuration as a token stream, for binding it without building the tree.
+ *
+ * <p>`!file` and `!resource` includes are spliced into the stream when they're reached. The overrides are
+ * injected into the stream: an overridden value replaces the value in the document, and a missing key is added
+ * at the end of its mapping. Elements of sequences are overridden by their indexes; overrides out of the sequences
+ * are ignored. The result is the same as binding the tree rewritten by {@link DefaultConfigReader},
+ * except that scalars are resolved by jackson-dataformat-yaml, e.g. timestamps are kept as written.
+ * Aliases aren't supported.</p>
+ */
+class StreamingConfigParser extends ParserMinimalBase {
+    private static final Tag FILE_TAG = new Tag("!file");
+    private static final Tag RESOURCE_TAG = new Tag("!resource");
+
+    private final YAMLFactory yamlFactory;
+    private ObjectCodec codec;
+    // null if there's no listener.
+    private final ConfigReadListener listener;
+    // The root document, the included documents and the injected tokens being read. The first one is read.
+    private final Deque<Source> sources = new ArrayDeque<>();
+    // Overrides of the containers being read, innermost first.
+    private final Deque<Level> levels = new ArrayDeque<>();
+    // Overrides of the next mapping, set by its key.
+    private Map<String, Object> nextOverrides;
+    private JsonReadContext context = JsonReadContext.createRootContext(null);
+    // The parser of the current token.
+    private JsonParser current;
+    private boolean closed;
+
+    private StreamingConfigParser(YAMLFactory yamlFactory, ObjectCodec codec, ConfigReadListener listener,
+                                  Map<String, Object> overrides) {
+        this.yamlFactory = yamlFactory;
+        this.codec = codec;
+        this.listener = listener;
+        this.nextOverrides = overrides;
+    }
+
+    /**
+     * @param location canonical path of the file, or URL of the resource. Used to detect include cycles.
+     */
+    static StreamingConfigParser open(YAMLFactory yamlFactory, ObjectCodec codec, ConfigReadListener listener,
+                                      List<PathValue> pathValues, String location, InputStream in) throws IOException {
+        StreamingConfigParser parser = new StreamingConfigParser(yamlFactory, codec, listener,
+                BindContext.toOverrideTree(pathValues));
+        parser.sources.push(new Source(yamlFactory.createParser(in), location, false, null));
+        return parser;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        while (true) {
+            Source source = sources.peek();
+            if (source == null) {
+                current = null;
+                return _currToken = null;
+            }
+
+            JsonToken token = source.done ? null : source.parser.nextToken();
+            if (token == null) {
+                sources.pop();
+                source.close(listener);
+                if (source.include && source.tokens == 0) {
+                    // An empty document is null.
+                    TokenBuffer buffer = new TokenBuffer(codec, false);
+                    buffer.writeNull();
+                    sources.push(new Source(buffer.asParser(), null, false, null));
+                }
+                continue;
+            }
+            source.tokens++;
+            if (source.yaml == null) {
+                // Injected tokens are already rewritten.
+                return accept(source.parser, token);
+            }
+
+            if (source.yaml.isCurrentAlias()) {
+                throw new JsonParseException(this, "Aliases aren't supported in streaming mode: *" + source.yaml.getText());
+            }
+            if (token.isStructStart()) {
+                source.depth++;
+            } else if (token.isStructEnd()) {
+                source.depth--;
+            }
+            if (source.depth == 0 && token != JsonToken.FIELD_NAME) {
+                // Don't read the following documents of the stream.
+                source.done = true;
+            }
+
+            if (token == JsonToken.VALUE_STRING) {
+                String typeId = source.yaml.getTypeId();
+                if ("file".equals(typeId)) {
+                    sources.push(openFile(source.yaml.getText()));
+                    continue;
+                } else if ("resource".equals(typeId)) {
+                    sources.push(openResource(source.yaml.getText()));
+                    continue;
+                }
+            } else if (token == JsonToken.END_OBJECT) {
+                Level level = levels.peek();
+                if (level.hasMissing()) {
+                    TokenBuffer buffer = new TokenBuffer(codec, false);
+                    writeOverrides(buffer, level.overrides, level.seen);
+                    buffer.writeEndObject();
+                    sources.push(new Source(buffer.asParser(), null, false, null));
+                    continue;
+                }
+            } else if (token == JsonToken.FIELD_NAME) {
+                Level level = levels.peek();
+                String name = source.yaml.getCurrentName();
+                Object override = level.overrides == null ? null : level.overrides.get(name);
+                if (override instanceof String) {
+                    level.seen.add(name);
+                    // Drop the value in the document, including its includes.
+                    source.yaml.nextToken();
+                    source.yaml.skipChildren();
+                    TokenBuffer buffer = new TokenBuffer(codec, false);
+                    buffer.writeFieldName(name);
+                    buffer.writeString((String) override);
+                    sources.push(new Source(buffer.asParser(), null, false, null));
+                    continue;
+                } else if (override != null) {
+                    level.seen.add(name);
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> childOverrides = (Map<String, Object>) override;
+                    return accept(source.parser, token, childOverrides);
+                }
+            }
+            if (context.inArray() && token != JsonToken.END_ARRAY) {
+                Level level = levels.peek();
+                Object override = level.overrides == null ? null : level.overrides.get(Integer.toString(level.next++));
+                if (override instanceof String) {
+                    if (token.isStructStart()) {
+                        source.yaml.skipChildren();
+                        source.depth--;
+                    }
+                    TokenBuffer buffer = new TokenBuffer(codec, false);
+                    buffer.writeString((String) override);
+                    sources.push(new Source(buffer.asParser(), null, false, null));
+                    continue;
+                } else if (override != null && token.isStructStart()) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> elementOverrides = (Map<String, Object>) override;
+                    nextOverrides = elementOverrides;
+                }
+            }
+            return accept(source.parser, token);
+        }
+    }
+
+    private JsonToken accept(JsonParser parser, JsonToken token) throws IOException {
+        return accept(parser, token, null);
+    }
+
+    private JsonToken accept(JsonParser parser, JsonToken token, Map<String, Object> childOverrides) throws IOException {
+        current = parser;
+        switch (token) {
+            case START_OBJECT:
+                nextIndex();
+                context = context.createChildObjectContext(-1, -1);
+                levels.push(Level.of(nextOverrides));
+                break;
+            case START_ARRAY:
+                nextIndex();
+                context = context.createChildArrayContext(-1, -1);
+                levels.push(Level.of(nextOverrides));
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                context = context.getParent();
+                levels.pop();
+                break;
+            case FIELD_NAME:
+                context.setCurrentName(parser.getCurrentName());
+                break;
+            default:
+                nextIndex();
+                break;
+        }
+        // Overrides of a key apply only if its value is a mapping or a sequence.
+        nextOverrides = childOverrides;
+        return _currToken = token;
+    }
+
+    private void nextIndex() {
+        if (context.inArray()) {
+            context.expectComma();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeOverrides(TokenBuffer buffer, Map<String, Object> overrides, Set<String> seen) throws IOException {
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            if (seen.contains(entry.getKey())) {
+                continue;
+            }
+            if (entry.getValue() instanceof Map && BindContext.isIndexed((Map<String, Object>) entry.getValue())) {
+                // Overrides don't create lists.
+                continue;
+            }
+            buffer.writeFieldName(entry.getKey());
+            if (entry.getValue() instanceof String) {
+                buffer.writeString((String) entry.getValue());
+            } else {
+                buffer.writeStartObject();
+                writeOverrides(buffer, (Map<String, Object>) entry.getValue(), Collections.emptySet());
+                buffer.writeEndObject();
+            }
+        }
+    }
+
+    private Source openFile(String fileName) {
+        try {
+            Path realPath = Paths.get(fileName).toRealPath();
+            String location = realPath.toString();
+            checkCycle(FILE_TAG, location);
+            return openInclude(location, Files.newInputStream(realPath));
+        } catch (IOException e) {
+            throw new ImportableConstructor.YamlImportFailedException(fileName, FILE_TAG, e);
+        }
+    }
+
+    private Source openResource(String resourceName) {
+        try {
+            URL resource = getClass().getClassLoader().getResource(resourceName);
+            if (resource == null) {
+                throw new FileNotFoundException("There's no resource named " + resourceName);
+            }
+            String location = resource.toString();
+            checkCycle(RESOURCE_TAG, location);
+            return openInclude(location, resource.openStream());
+        } catch (IOException e) {
+            throw new ImportableConstructor.YamlImportFailedException(resourceName, RESOURCE_TAG, e);
+        }
+    }
+
+    private Source openInclude(String location, InputStream in) throws IOException {
+        if (listener == null) {
+            return new Source(yamlFactory.createParser(in), location, true, null);
+        }
+        CountingInputStream counting = new CountingInputStream(in);
+        return new Source(yamlFactory.createParser(counting), location, true, counting);
+    }
+
+    private void checkCycle(Tag tag, String location) {
+        List<String> chain = new ArrayList<>();
+        for (Iterator<Source> it = sources.descendingIterator(); it.hasNext(); ) {
+            Source source = it.next();
+            if (source.location != null) {
+                chain.add(source.location);
+            }
+        }
+        if (chain.contains(location)) {
+            throw new ImportableConstructor.YamlImportCycleException(tag, chain, location);
+        }
+    }
+
+    @Override
+    protected void _handleEOF() {
+    }
+
+    @Override
+    public String getCurrentName() throws IOException {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            JsonReadContext parent = context.getParent();
+            return parent == null ? null : parent.getCurrentName();
+        }
+        return context.getCurrentName();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        while (!sources.isEmpty()) {
+            sources.pop().parser.close();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return context;
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        try {
+            context.setCurrentName(name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getText() throws IOException {
+        return current == null ? null : current.getText();
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+        return current == null ? null : current.getTextCharacters();
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return current != null && current.hasTextCharacters();
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+        return current == null ? 0 : current.getTextLength();
+    }
+
+    @Override
+    public int getTextOffset() throws IOException {
+        return current == null ? 0 : current.getTextOffset();
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant b64variant) throws IOException {
+        return current.getBinaryValue(b64variant);
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+        return current.getNumberValue();
+    }
+
+    @Override
+    public NumberType getNumberType() throws IOException {
+        return current.getNumberType();
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+        return current.getIntValue();
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+        return current.getLongValue();
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+        return current.getBigIntegerValue();
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+        return current.getFloatValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+        return current.getDoubleValue();
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+        return current.getDecimalValue();
+    }
+
+    @Override
+    public Object getEmbeddedObject() throws IOException {
+        return current.getEmbeddedObject();
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+        return PackageVersion.VERSION;
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return current == null ? JsonLocation.NA : current.getTokenLocation();
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return current == null ? JsonLocation.NA : current.getCurrentLocation();
+    }
+
+    private static class Source {
+        private final JsonParser parser;
+        // null for injected tokens.
+        private final YAMLParser yaml;
+        // null for injected tokens.
+        private final String location;
+        private final boolean include;
+        // null if there's no listener.
+        private final CountingInputStream counting;
+        private final long start = System.nanoTime();
+        private int depth;
+        private long tokens;
+        private boolean done;
+
+        Source(JsonParser parser, String location, boolean include, CountingInputStream counting) {
+            this.parser = parser;
+            this.yaml = parser instanceof YAMLParser ? (YAMLParser) parser : null;
+            this.location = location;
+            this.include = include;
+            this.counting = counting;
+        }
+
+        void close(ConfigReadListener listener) throws IOException {
+            parser.close();
+            if (listener != null && counting != null) {
+                listener.onInclude(location, counting.getCount(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static class Level {
+        private static final Level NONE = new Level(null);
+
+        // null if there are no overrides in the container.
+        private final Map<String, Object> overrides;
+        // keys of the overrides found in the document. null if there are no overrides.
+        private final Set<String> seen;
+        // index of the next element of the sequence.
+        private int next;
+
+        Level(Map<String, Object> overrides) {
+            this.overrides = overrides == null || overrides.isEmpty() ? null : overrides;
+            this.seen = this.overrides == null ? null : new HashSet<>();
+        }
+
+        static Level of(Map<String, Object> overrides) {
+            return overrides == null || overrides.isEmpty() ? NONE : new Level(overrides);
+        }
+
+        boolean hasMissing() {
+            return overrides != null && seen.size() < overrides.size();
+        }
+    }
+}
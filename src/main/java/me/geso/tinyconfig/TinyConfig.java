@@ -0,0 +1,20 @@
+package me.geso.tinyconfig;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate a {@link ConfigBinder} for the configuration class at compile time.
+ *
+ * <p>{@link TinyConfigProcessor} generates {@code <ClassName>$$TinyConfigBinder} for the annotated class
+ * and for the configuration classes reachable from it in the same compilation. {@link DefaultConfigReader}
+ * uses the generated binder instead of {@link java.beans.Introspector} and Jackson's bean binding.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface TinyConfig {
+}
@@ -0,0 +1,934 @@
+package me.geso.tinyconfig;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates {@link ConfigBinder}s for the classes annotated with {@link TinyConfig}.
+ *
+ * <p>The plan of the binder follows the rules of {@link BindingPlan}'s {@link java.beans.Introspector} scan,
+ * and the keys follow Jackson's property naming. Properties are set through their setters. Types other than
+ * scalars and configuration classes in the same compilation are converted by Jackson at runtime.</p>
+ *
+ * <p>Each binder also has a lazy subclass of the configuration class for {@link ConfigReader#readLazy}, which
+ * overrides the getters and setters of the sections to bind them on first access.</p>
+ *
+ * <p>Configuration classes which Jackson binds differently from plain setters (Jackson annotations,
+ * public fields, setter-less collections, ...) don't get binders.</p>
+ */
+@SupportedAnnotationTypes("me.geso.tinyconfig.TinyConfig")
+public class TinyConfigProcessor extends AbstractProcessor {
+    private static final String PACKAGE = "me.geso.tinyconfig";
+
+    // Types in this compilation. Binders are generated for them only, besides the types annotated by @TinyConfig.
+    private final Set<String> sourceTypes = new HashSet<>();
+    private final Set<String> generated = new HashSet<>();
+    // @TinyConfig types whose binders aren't generated yet, and the types already deferred once.
+    private final List<String> pending = new ArrayList<>();
+    private final Set<String> deferred = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            addSourceType(type);
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(TinyConfig.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@TinyConfig must be on a class");
+                continue;
+            }
+            pending.add(((TypeElement) element).getQualifiedName().toString());
+        }
+
+        // Binders are generated in the round the types are found, so that they're compiled like other sources.
+        // A type is deferred to the next round only if lombok hasn't added its members yet, e.g. it runs after
+        // this processor. Lombok completes the types of a round at once, so a type is deferred at most once.
+        for (Iterator<String> iterator = pending.iterator(); iterator.hasNext(); ) {
+            String name = iterator.next();
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(name);
+            if (!roundEnv.processingOver() && deferred.add(name) && hasMissingMembers(type, new HashSet<>())) {
+                continue;
+            }
+            iterator.remove();
+            String reason = getUnbindableReason(type);
+            if (reason != null) {
+                error(type, "Can't generate ConfigBinder for " + name + ": " + reason);
+                continue;
+            }
+            generate(type);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if lombok hasn't added the accessors of the type, its nested types or the types of its fields
+     * in this compilation yet.
+     */
+    private boolean hasMissingMembers(TypeElement type, Set<String> visited) {
+        if (!visited.add(type.getQualifiedName().toString())) {
+            return false;
+        }
+        Set<String> methods = new HashSet<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            methods.add(method.getSimpleName().toString());
+        }
+        boolean lombokType = hasLombokAccessors(type);
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            // Lombok names the accessors of the boolean field isFoo isFoo() and setFoo().
+            if ((lombokType || hasLombokAccessors(field))
+                    && !methods.contains("get" + capitalized) && !methods.contains("is" + capitalized)
+                    && !methods.contains("set" + capitalized) && !methods.contains(name)) {
+                return true;
+            }
+            TypeMirror fieldType = field.asType();
+            if (fieldType.getKind() == TypeKind.DECLARED) {
+                TypeElement child = (TypeElement) ((DeclaredType) fieldType).asElement();
+                if (sourceTypes.contains(child.getQualifiedName().toString()) && hasMissingMembers(child, visited)) {
+                    return true;
+                }
+            }
+        }
+        for (TypeElement child : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (hasMissingMembers(child, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLombokAccessors(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            switch (annotation.getAnnotationType().toString()) {
+                case "lombok.Data":
+                case "lombok.Value":
+                case "lombok.Getter":
+                case "lombok.Setter":
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private void addSourceType(TypeElement type) {
+        sourceTypes.add(type.getQualifiedName().toString());
+        for (TypeElement child : ElementFilter.typesIn(type.getEnclosedElements())) {
+            addSourceType(child);
+        }
+    }
+
+    /**
+     * Generate the binder for the type, and the binders for the configuration classes reachable from it.
+     */
+    private void generate(TypeElement root) {
+        Deque<TypeElement> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            TypeElement type = queue.poll();
+            String binderName = getBinderName(type);
+            if (!generated.add(binderName)) {
+                continue;
+            }
+
+            BinderWriter writer = new BinderWriter(type, binderName);
+            for (Property property : getProperties(type).values()) {
+                if (property.getSetters().isEmpty()) {
+                    continue;
+                }
+                TypeMirror parameterType = property.getSetters().get(0).getParameters().get(0).asType();
+                TypeElement child = asBindable(parameterType);
+                if (child != null) {
+                    queue.add(child);
+                }
+                writer.addProperty(property, parameterType, child);
+            }
+            writer.setLeaves(scan(type));
+
+            try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(binderName, root).openWriter())) {
+                writer.write(out);
+            } catch (IOException e) {
+                error(root, "Can't write " + binderName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the class if it's a configuration class which gets a generated binder, or null.
+     */
+    private TypeElement asBindable(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String name = element.getQualifiedName().toString();
+        if (isJdkType(name) || isScalar(type)) {
+            return null;
+        }
+        if (!sourceTypes.contains(name) && element.getAnnotation(TinyConfig.class) == null) {
+            return null;
+        }
+        element = processingEnv.getElementUtils().getTypeElement(name);
+        return getUnbindableReason(element) == null ? element : null;
+    }
+
+    /**
+     * @return the reason why the generated binder can't bind the class like Jackson does, or null.
+     */
+    private String getUnbindableReason(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "not a concrete class";
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            return "generic class";
+        }
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return "private class";
+            }
+            if (element.getEnclosingElement() instanceof TypeElement && !element.getModifiers().contains(Modifier.STATIC)) {
+                return "inner class";
+            }
+        }
+
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            return "no default constructor";
+        }
+
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            if (hasJacksonAnnotation(current)) {
+                return "Jackson annotation on " + current.getQualifiedName();
+            }
+            for (Element member : current.getEnclosedElements()) {
+                if (member.getKind().isClass() || member.getKind().isInterface()) {
+                    continue;
+                }
+                if (hasJacksonAnnotation(member)) {
+                    return "Jackson annotation on " + member;
+                }
+                if (member.getKind() == ElementKind.FIELD
+                        && member.getModifiers().contains(Modifier.PUBLIC)
+                        && !member.getModifiers().contains(Modifier.STATIC)) {
+                    return "public field " + member.getSimpleName();
+                }
+            }
+        }
+
+        Types types = processingEnv.getTypeUtils();
+        Elements elements = processingEnv.getElementUtils();
+        TypeMirror collection = types.erasure(elements.getTypeElement("java.util.Collection").asType());
+        TypeMirror map = types.erasure(elements.getTypeElement("java.util.Map").asType());
+        Set<String> keys = new HashSet<>();
+        for (Property property : getProperties(type).values()) {
+            List<ExecutableElement> setters = property.getSetters();
+            if (setters.size() > 1) {
+                return "multiple setters for " + property.getName();
+            }
+            if (setters.isEmpty()) {
+                TypeMirror propertyType = types.erasure(property.getType());
+                if (types.isAssignable(propertyType, collection) || types.isAssignable(propertyType, map)) {
+                    // Jackson adds the items to the collection returned by the getter.
+                    return "no setter for " + property.getName();
+                }
+                continue;
+            }
+            if (hasTypeVariable(setters.get(0).getParameters().get(0).asType())) {
+                return "type variable in " + setters.get(0);
+            }
+            if (!keys.add(property.getKey())) {
+                return "conflicting properties named " + property.getKey();
+            }
+        }
+        return null;
+    }
+
+    private boolean hasJacksonAnnotation(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotation.getAnnotationType().toString().startsWith("com.fasterxml.jackson.")) {
+                return true;
+            }
+        }
+        if (element instanceof ExecutableElement) {
+            for (VariableElement parameter : ((ExecutableElement) element).getParameters()) {
+                if (hasJacksonAnnotation(parameter)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasTypeVariable(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                return true;
+            case ARRAY:
+                return hasTypeVariable(((ArrayType) type).getComponentType());
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                return wildcard.getExtendsBound() != null && hasTypeVariable(wildcard.getExtendsBound())
+                        || wildcard.getSuperBound() != null && hasTypeVariable(wildcard.getSuperBound());
+            case DECLARED:
+                for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if (hasTypeVariable(argument)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return !type.getKind().isPrimitive();
+        }
+    }
+
+    /**
+     * Scan the leaves the same way as {@link BindingPlan} does.
+     */
+    private List<Leaf> scan(TypeElement type) {
+        List<Leaf> leaves = new ArrayList<>();
+        doScan(type, new ArrayList<>(), new ArrayDeque<>(), leaves);
+        return leaves;
+    }
+
+    private void doScan(TypeElement type, List<String> path, Deque<String> visiting, List<Leaf> leaves) {
+        String name = type.getQualifiedName().toString();
+        if (visiting.contains(name)) {
+            return;
+        }
+
+        visiting.push(name);
+        Types types = processingEnv.getTypeUtils();
+        for (Property property : getProperties(type).values()) {
+            TypeMirror propertyType = types.erasure(property.getType());
+            List<String> newPath = new ArrayList<>(path);
+            newPath.add(property.getName());
+            if (isScalar(propertyType) || isDataFile(propertyType)) {
+                for (ExecutableElement setter : property.getSetters()) {
+                    if (types.isSameType(types.erasure(setter.getParameters().get(0).asType()), propertyType)) {
+                        leaves.add(new Leaf(newPath, propertyType));
+                        break;
+                    }
+                }
+            } else if (isList(propertyType) || isMap(propertyType)) {
+                scanElement(property.getType(), newPath, visiting, leaves);
+            } else if (propertyType.getKind() == TypeKind.DECLARED) {
+                TypeElement child = (TypeElement) ((DeclaredType) propertyType).asElement();
+                // Introspector can't scan interfaces, and enums have no properties.
+                if (child.getKind() == ElementKind.CLASS && !isJdkType(child.getQualifiedName().toString())) {
+                    doScan(child, newPath, visiting, leaves);
+                }
+            }
+        }
+        visiting.pop();
+    }
+
+    /**
+     * Scan the elements of the {@link List} or the {@link Map} with String keys, like {@link BindingPlan} does.
+     */
+    private void scanElement(TypeMirror type, List<String> path, Deque<String> visiting, List<Leaf> leaves) {
+        if (type.getKind() != TypeKind.DECLARED || ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        TypeMirror elementType;
+        if (isList(type) && arguments.size() == 1) {
+            elementType = arguments.get(0);
+        } else if (isMap(type) && arguments.size() == 2 && isString(arguments.get(0))) {
+            elementType = arguments.get(1);
+        } else {
+            return;
+        }
+
+        List<String> newPath = new ArrayList<>(path);
+        newPath.add(BindingPlan.ELEMENT);
+        if (elementType.getKind() != TypeKind.DECLARED) {
+            return;
+        } else if (!((DeclaredType) elementType).getTypeArguments().isEmpty()) {
+            if (isList(elementType) || isMap(elementType)) {
+                scanElement(elementType, newPath, visiting, leaves);
+            }
+        } else if (isScalar(elementType) || isDataFile(elementType)) {
+            leaves.add(new Leaf(newPath, elementType));
+        } else {
+            TypeElement child = (TypeElement) ((DeclaredType) elementType).asElement();
+            if (child.getKind() == ElementKind.CLASS && !isJdkType(child.getQualifiedName().toString())) {
+                doScan(child, newPath, visiting, leaves);
+            }
+        }
+    }
+
+    private boolean isList(TypeMirror type) {
+        return isAssignable(type, "java.util.List");
+    }
+
+    private boolean isMap(TypeMirror type) {
+        return isAssignable(type, "java.util.Map");
+    }
+
+    private boolean isAssignable(TypeMirror type, String name) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Types types = processingEnv.getTypeUtils();
+        return types.isAssignable(types.erasure(type),
+                types.erasure(processingEnv.getElementUtils().getTypeElement(name).asType()));
+    }
+
+    private static boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    /**
+     * Get the bean properties of the type, sorted by name like {@link java.beans.Introspector} does.
+     */
+    private Map<String, Property> getProperties(TypeElement type) {
+        Map<String, Property> properties = new TreeMap<>();
+        Map<String, ExecutableElement> getters = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+                continue;
+            }
+
+            String methodName = method.getSimpleName().toString();
+            int parameters = method.getParameters().size();
+            TypeMirror returnType = method.getReturnType();
+            if (methodName.length() > 3 && methodName.startsWith("get") && parameters == 0 && returnType.getKind() != TypeKind.VOID) {
+                getters.put(methodName.substring(3), method);
+            } else if (methodName.length() > 2 && methodName.startsWith("is") && parameters == 0 && returnType.getKind() == TypeKind.BOOLEAN) {
+                getters.put(methodName.substring(2), method);
+            } else if (methodName.length() > 3 && methodName.startsWith("set") && parameters == 1) {
+                String base = methodName.substring(3);
+                properties.computeIfAbsent(decapitalize(base), key -> new Property(key, mangle(base)))
+                        .getSetters()
+                        .add(method);
+            }
+        }
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            String base = entry.getKey();
+            properties.computeIfAbsent(decapitalize(base), key -> new Property(key, mangle(base)))
+                    .setGetter(entry.getValue());
+        }
+        return properties;
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private String getBinderName(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return packageElement.isUnnamed() ? binaryName + ConfigBinders.SUFFIX
+                : packageElement.getQualifiedName() + "." + binaryName.substring(packageElement.getQualifiedName().length() + 1) + ConfigBinders.SUFFIX;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * @return true if the type is bound from a subtree: configuration classes, collections, maps and arrays.
+     * Other JDK types (e.g. BigInteger) are values.
+     */
+    private boolean isSection(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return true;
+        } else if (type.getKind() != TypeKind.DECLARED || isScalar(type)) {
+            return false;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        if (!isJdkType(name)) {
+            return true;
+        }
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror erasure = types.erasure(type);
+        return types.isAssignable(erasure, types.erasure(elements.getTypeElement("java.util.Collection").asType()))
+                || types.isAssignable(erasure, types.erasure(elements.getTypeElement("java.util.Map").asType()));
+    }
+
+    static boolean isScalar(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        return Scalar.of(name) != null;
+    }
+
+    /**
+     * {@link MappedLines} and {@link MappedCsv} are converted by Jackson, and overridden by their paths.
+     */
+    private static boolean isDataFile(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        return name.equals(MappedLines.class.getName()) || name.equals(MappedCsv.class.getName());
+    }
+
+    private static boolean isJdkType(String name) {
+        return name.startsWith("java.") || name.startsWith("javax.");
+    }
+
+    /**
+     * Property name by {@link java.beans.Introspector#decapitalize(String)}.
+     */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Property name by Jackson: the leading upper case letters are lower cased.
+     */
+    private static String mangle(String name) {
+        StringBuilder builder = new StringBuilder(name.length());
+        int i = 0;
+        for (; i < name.length() && Character.isUpperCase(name.charAt(i)); i++) {
+            builder.append(Character.toLowerCase(name.charAt(i)));
+        }
+        return builder.append(name, i, name.length()).toString();
+    }
+
+    /**
+     * Scalar types and the methods of {@link BindContext} to read them.
+     */
+    enum Scalar {
+        BOOLEAN("boolean", "java.lang.Boolean", "getBoolean", "false"),
+        CHAR("char", "java.lang.Character", "getCharacter", "0"),
+        BYTE("byte", "java.lang.Byte", "getByte", "0"),
+        SHORT("short", "java.lang.Short", "getShort", "0"),
+        INT("int", "java.lang.Integer", "getInteger", "0"),
+        LONG("long", "java.lang.Long", "getLong", "0"),
+        FLOAT("float", "java.lang.Float", "getFloat", "0"),
+        DOUBLE("double", "java.lang.Double", "getDouble", "0"),
+        STRING(null, "java.lang.String", "getString", null);
+
+        final String primitive;
+        final String boxed;
+        final String getter;
+        final String defaultValue;
+
+        Scalar(String primitive, String boxed, String getter, String defaultValue) {
+            this.primitive = primitive;
+            this.boxed = boxed;
+            this.getter = getter;
+            this.defaultValue = defaultValue;
+        }
+
+        static Scalar of(String name) {
+            for (Scalar scalar : values()) {
+                if (name.equals(scalar.primitive) || name.equals(scalar.boxed)) {
+                    return scalar;
+                }
+            }
+            return null;
+        }
+    }
+
+    static class Property {
+        private final String name;
+        private final String key;
+        private final List<ExecutableElement> setters = new ArrayList<>();
+        private ExecutableElement getter;
+
+        Property(String name, String key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        /**
+         * Name in {@link BindingPlan}.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Key in the configuration tree.
+         */
+        String getKey() {
+            return key;
+        }
+
+        List<ExecutableElement> getSetters() {
+            return setters;
+        }
+
+        /**
+         * @return the getter, or null.
+         */
+        ExecutableElement getGetter() {
+            return getter;
+        }
+
+        void setGetter(ExecutableElement getter) {
+            this.getter = getter;
+        }
+
+        /**
+         * Type of the property: the return type of the getter, or the parameter type of the setter.
+         */
+        TypeMirror getType() {
+            return getter != null ? getter.getReturnType() : setters.get(0).getParameters().get(0).asType();
+        }
+    }
+
+    static class Leaf {
+        final List<String> path;
+        final TypeMirror type;
+
+        Leaf(List<String> path, TypeMirror type) {
+            this.path = path;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Writes the source of a binder.
+     */
+    private class BinderWriter {
+        private final TypeElement type;
+        private final String binderName;
+        private final List<String> fields = new ArrayList<>();
+        // binder class -> field name
+        private final Map<String, String> binderFields = new HashMap<>();
+        private final List<PropertyBinding> bindings = new ArrayList<>();
+        private List<Leaf> leaves;
+
+        BinderWriter(TypeElement type, String binderName) {
+            this.type = type;
+            this.binderName = binderName;
+        }
+
+        void setLeaves(List<Leaf> leaves) {
+            this.leaves = leaves;
+        }
+
+        void addProperty(Property property, TypeMirror parameterType, TypeElement child) {
+            String field = null;
+            if (child != null) {
+                String childBinder = getBinderName(child);
+                field = binderFields.get(childBinder);
+                if (field == null) {
+                    field = "BINDER_" + fields.size();
+                    binderFields.put(childBinder, field);
+                    fields.add("    private static final " + childBinder + " " + field + " = new " + childBinder + "();\n");
+                }
+            } else if (!isScalar(parameterType)) {
+                field = "TYPE_" + fields.size();
+                String typeReference = "com.fasterxml.jackson.core.type.TypeReference<" + typeName(parameterType) + ">";
+                fields.add("    private static final " + typeReference + " " + field + " = new " + typeReference + "() {\n    };\n");
+            }
+            bindings.add(new PropertyBinding(property, parameterType, child != null, field));
+        }
+
+        void write(PrintWriter out) {
+            String typeName = type.getQualifiedName().toString();
+            int dot = binderName.lastIndexOf('.');
+            if (dot >= 0) {
+                out.println("package " + binderName.substring(0, dot) + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by " + TinyConfigProcessor.class.getName() + ". Don't edit.");
+            out.println(" */");
+            out.println("public final class " + binderName.substring(dot + 1) + " implements " + PACKAGE + ".ConfigBinder<" + typeName + "> {");
+            out.println("    private static final " + PACKAGE + ".BindingPlan PLAN = " + PACKAGE + ".BindingPlan.builder(" + typeName + ".class)");
+            for (Leaf leaf : leaves) {
+                StringBuilder line = new StringBuilder("            .leaf(").append(typeName(leaf.type)).append(".class");
+                for (String name : leaf.path) {
+                    line.append(", ").append(quote(name));
+                }
+                out.println(line.append(")"));
+            }
+            out.println("            .build();");
+            for (String field : fields) {
+                out.print(field);
+            }
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + PACKAGE + ".BindingPlan getPlan() {");
+            out.println("        return PLAN;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + typeName + " bind(Object tree, " + PACKAGE + ".BindContext context) throws java.io.IOException {");
+            out.println("        java.util.Map<?, ?> map = context.toMap(tree, " + typeName + ".class);");
+            out.println("        if (map == null) {");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        " + typeName + " bean = new " + typeName + "();");
+            StringBuilder body = new StringBuilder();
+            for (PropertyBinding binding : bindings) {
+                binding.write(body, "context", "bean.", "        ");
+            }
+            out.print(body);
+            out.println("        return bean;");
+            out.println("    }");
+            out.println();
+
+            // Sections whose getters are overridden by the lazy subclass.
+            List<PropertyBinding> lazyBindings = new ArrayList<>();
+            if (!type.getModifiers().contains(Modifier.FINAL)) {
+                for (PropertyBinding binding : bindings) {
+                    if (binding.isLazy()) {
+                        lazyBindings.add(binding);
+                    }
+                }
+            }
+            out.println("    @Override");
+            out.println("    public " + typeName + " bindLazy(Object tree, " + PACKAGE + ".BindContext context) throws java.io.IOException {");
+            out.println("        java.util.Map<?, ?> map = context.toMap(tree, " + typeName + ".class);");
+            out.println("        if (map == null) {");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        " + typeName + " bean = new " + (lazyBindings.isEmpty() ? typeName : "Lazy") + "(" + (lazyBindings.isEmpty() ? "" : "map, context") + ");");
+            body.setLength(0);
+            for (PropertyBinding binding : bindings) {
+                if (!isSection(binding.parameterType)) {
+                    binding.write(body, "context", "bean.", "        ");
+                } else if (!lazyBindings.contains(binding)) {
+                    body.append("        {\n");
+                    body.append("            " + PACKAGE + ".BindContext section = context.section(")
+                            .append(quote(binding.property.getName())).append(");\n");
+                    binding.write(body, "section", "bean.", "            ");
+                    body.append("        }\n");
+                }
+            }
+            out.print(body);
+            out.println("        return bean;");
+            out.println("    }");
+            if (!lazyBindings.isEmpty()) {
+                out.println();
+                writeLazy(out, typeName, lazyBindings);
+            }
+            out.println("}");
+        }
+
+        /**
+         * Write the subclass which binds the sections when their getters are called first.
+         * The sections are removed from its copy of the mapping once bound.
+         */
+        private void writeLazy(PrintWriter out, String typeName, List<PropertyBinding> lazyBindings) {
+            out.println("    private static final class Lazy extends " + typeName + " {");
+            out.println("        private final java.util.Map<Object, Object> lazyMap;");
+            out.println("        private final " + PACKAGE + ".BindContext lazyContext;");
+            for (int i = 0; i < lazyBindings.size(); i++) {
+                out.println("        private volatile boolean bound" + i + ";");
+            }
+            out.println();
+            out.println("        Lazy(java.util.Map<?, ?> map, " + PACKAGE + ".BindContext context) {");
+            out.println("            this.lazyMap = new java.util.HashMap<>(map);");
+            out.println("            this.lazyContext = context;");
+            out.println("        }");
+            for (int i = 0; i < lazyBindings.size(); i++) {
+                PropertyBinding binding = lazyBindings.get(i);
+                ExecutableElement getter = binding.property.getGetter();
+                ExecutableElement setter = binding.property.getSetters().get(0);
+                String key = quote(binding.property.getKey());
+                String bound = "bound" + i;
+
+                out.println();
+                out.println("        @Override");
+                out.println("        public " + typeName(getter.getReturnType()) + " " + getter.getSimpleName() + "() {");
+                out.println("            if (!" + bound + ") {");
+                out.println("                bind" + i + "();");
+                out.println("            }");
+                out.println("            return super." + getter.getSimpleName() + "();");
+                out.println("        }");
+
+                boolean returnsValue = setter.getReturnType().getKind() != TypeKind.VOID;
+                out.println();
+                out.println("        @Override");
+                out.println("        public " + typeName(setter.getReturnType()) + " " + setter.getSimpleName() + "(" + typeName(binding.parameterType) + " value) {");
+                out.println("            synchronized (this) {");
+                out.println("                " + (returnsValue ? typeName(setter.getReturnType()) + " result = " : "") + "super." + setter.getSimpleName() + "(value);");
+                out.println("                lazyMap.remove(" + key + ");");
+                out.println("                " + bound + " = true;");
+                if (returnsValue) {
+                    out.println("                return result;");
+                }
+                out.println("            }");
+                out.println("        }");
+
+                out.println();
+                out.println("        private synchronized void bind" + i + "() {");
+                out.println("            if (" + bound + ") {");
+                out.println("                return;");
+                out.println("            }");
+                out.println("            java.util.Map<?, ?> map = lazyMap;");
+                out.println("            try {");
+                out.println("                " + PACKAGE + ".BindContext context = lazyContext.section(" + quote(binding.property.getName()) + ");");
+                StringBuilder body = new StringBuilder();
+                binding.write(body, "context", "super.", "                ");
+                out.print(body);
+                out.println("            } catch (java.io.IOException e) {");
+                out.println("                throw new java.io.UncheckedIOException(e);");
+                out.println("            }");
+                out.println("            lazyMap.remove(" + key + ");");
+                out.println("            " + bound + " = true;");
+                out.println("        }");
+            }
+            out.println("    }");
+        }
+
+        /**
+         * Binding of a property by its setter.
+         */
+        private class PropertyBinding {
+            private final Property property;
+            private final TypeMirror parameterType;
+            // null unless the property is a scalar.
+            private final Scalar scalar;
+            private final boolean child;
+            // BINDER_n of the child, TYPE_n of the other types, or null for scalars.
+            private final String field;
+
+            PropertyBinding(Property property, TypeMirror parameterType, boolean child, String field) {
+                this.property = property;
+                this.parameterType = parameterType;
+                this.scalar = isScalar(parameterType) ? Scalar.of(typeName(parameterType)) : null;
+                this.child = child;
+                this.field = field;
+            }
+
+            /**
+             * @return true if the property is a section, and the subclass can override its getter and setter.
+             */
+            boolean isLazy() {
+                ExecutableElement getter = property.getGetter();
+                ExecutableElement setter = property.getSetters().get(0);
+                return isSection(parameterType) && getter != null
+                        && !getter.getModifiers().contains(Modifier.FINAL)
+                        && !setter.getModifiers().contains(Modifier.FINAL);
+            }
+
+            void write(StringBuilder out, String context, String target, String indent) {
+                String setter = property.getSetters().get(0).getSimpleName().toString();
+                String key = quote(property.getKey());
+                out.append(indent).append("if (").append(context).append(".has(map, ").append(key).append(")) {\n");
+                if (scalar != null && parameterType.getKind().isPrimitive()) {
+                    out.append(indent).append("    ").append(scalar.boxed).append(" value = ").append(context).append('.')
+                            .append(scalar.getter).append("(map, ").append(key).append(");\n");
+                    out.append(indent).append("    ").append(target).append(setter).append("(value == null ? ")
+                            .append(scalar.defaultValue).append(" : value);\n");
+                } else if (scalar != null) {
+                    out.append(indent).append("    ").append(target).append(setter).append("(").append(context).append('.')
+                            .append(scalar.getter).append("(map, ").append(key).append("));\n");
+                } else if (child) {
+                    out.append(indent).append("    ").append(target).append(setter).append("(").append(context)
+                            .append(".bind(map, ").append(key).append(", ").append(field).append("));\n");
+                } else {
+                    out.append(indent).append("    ").append(target).append(setter).append("(").append(context)
+                            .append(".convert(map, ").append(key).append(", ").append(field).append("));\n");
+                }
+                out.append(indent).append("}\n");
+            }
+        }
+
+        /**
+         * Source of the type, without type annotations.
+         */
+        private String typeName(TypeMirror type) {
+            switch (type.getKind()) {
+                case DECLARED:
+                    DeclaredType declaredType = (DeclaredType) type;
+                    StringBuilder builder = new StringBuilder(((TypeElement) declaredType.asElement()).getQualifiedName());
+                    List<? extends TypeMirror> arguments = declaredType.getTypeArguments();
+                    if (!arguments.isEmpty()) {
+                        builder.append('<');
+                        for (int i = 0; i < arguments.size(); i++) {
+                            builder.append(i == 0 ? "" : ", ").append(typeName(arguments.get(i)));
+                        }
+                        builder.append('>');
+                    }
+                    return builder.toString();
+                case ARRAY:
+                    return typeName(((ArrayType) type).getComponentType()) + "[]";
+                case WILDCARD:
+                    WildcardType wildcard = (WildcardType) type;
+                    if (wildcard.getExtendsBound() != null) {
+                        return "? extends " + typeName(wildcard.getExtendsBound());
+                    } else if (wildcard.getSuperBound() != null) {
+                        return "? super " + typeName(wildcard.getSuperBound());
+                    }
+                    return "?";
+                default:
+                    return type.getKind().name().toLowerCase();
+            }
+        }
+
+        private String quote(String value) {
+            StringBuilder builder = new StringBuilder("\"");
+            for (char c : value.toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    builder.append('\\');
+                }
+                builder.append(c);
+            }
+            return builder.append('"').toString();
+        }
+    }
+}
@@ -1,10 +1,45 @@
 package me.geso.tinyconfig;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ValueLoader {
     String getName(List<String> path);
 
     Optional<PathValue> getValue(List<String> path);
+
+    /**
+     * Get the name of the leaf of {@link BindingPlan}.
+     * The result must depend only on the leaf, since {@link BindingPlan} caches the names per loader class.
+     */
+    default String getName(BindingPlan.Leaf leaf) {
+        return getName(leaf.getPath());
+    }
+
+    /**
+     * Load the value for the leaf of {@link BindingPlan}.
+     * Implementations can override this to use the names precomputed in the leaf.
+     */
+    default Optional<PathValue> getValue(BindingPlan.Leaf leaf) {
+        return getValue(leaf.getPath());
+    }
+
+    /**
+     * Get the index or the key of a collection element from its part of the name.
+     * e.g. `0` of `servers.0.host` for the leaf `servers.*.host`.
+     */
+    default String getElement(String name) {
+        return name;
+    }
+
+    /**
+     * Take a snapshot of all values this loader can see, keyed by name.
+     * {@link Overrides} uses the snapshot to resolve all leaves at once.
+     *
+     * @return snapshot of the values, or null if this loader can't enumerate its values.
+     */
+    default Map<String, String> snapshot() {
+        return null;
+    }
 }
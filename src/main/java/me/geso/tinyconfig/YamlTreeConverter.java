@@ -0,0 +1,94 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.representer.Representer;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Convert the object graph built by SnakeYAML into a Jackson tree.
+ *
+ * <p>The result is equivalent to dumping the graph as YAML and parsing it again
+ * with jackson-dataformat-yaml, without the intermediate text.</p>
+ */
+class YamlTreeConverter {
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    static JsonNode toTree(Object value) {
+        if (value == null) {
+            return FACTORY.nullNode();
+        } else if (value instanceof String) {
+            return FACTORY.textNode((String) value);
+        } else if (value instanceof Map) {
+            ObjectNode node = FACTORY.objectNode();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                node.set(toKey(entry.getKey()), toTree(entry.getValue()));
+            }
+            return node;
+        } else if (value instanceof Set) {
+            // `!!set` is dumped as a mapping with null values.
+            ObjectNode node = FACTORY.objectNode();
+            for (Object item : (Set<?>) value) {
+                node.set(toKey(item), FACTORY.nullNode());
+            }
+            return node;
+        } else if (value instanceof Collection) {
+            ArrayNode node = FACTORY.arrayNode();
+            for (Object item : (Collection<?>) value) {
+                node.add(toTree(item));
+            }
+            return node;
+        } else if (value instanceof Object[]) {
+            // `!!pairs` and `!!omap` entries.
+            ArrayNode node = FACTORY.arrayNode();
+            for (Object item : (Object[]) value) {
+                node.add(toTree(item));
+            }
+            return node;
+        } else if (value instanceof Boolean) {
+            return FACTORY.booleanNode((Boolean) value);
+        } else if (value instanceof Integer) {
+            return FACTORY.numberNode((Integer) value);
+        } else if (value instanceof Long) {
+            return FACTORY.numberNode((Long) value);
+        } else if (value instanceof BigInteger) {
+            return FACTORY.numberNode((BigInteger) value);
+        } else if (value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite()) {
+            return FACTORY.numberNode((Double) value);
+        } else if (value instanceof byte[]) {
+            return FACTORY.binaryNode((byte[]) value);
+        } else if (value instanceof MappedLines || value instanceof MappedCsv) {
+            // Passed to the deserializer as is, without reading the file.
+            return FACTORY.pojoNode(value);
+        } else {
+            // Timestamps and special floats are read back as plain text.
+            return FACTORY.textNode(represent(value));
+        }
+    }
+
+    static String toKey(Object key) {
+        if (key instanceof String) {
+            return (String) key;
+        } else if (key == null || key instanceof Number || key instanceof Boolean) {
+            return String.valueOf(key);
+        } else {
+            return represent(key);
+        }
+    }
+
+    private static String represent(Object value) {
+        Node node = new Representer().represent(value);
+        if (node instanceof ScalarNode) {
+            return ((ScalarNode) node).getValue();
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,63 @@
+package me.geso.tinyconfig;
+
+import lombok.Data;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BindingPlanTest {
+    @Test
+    public void leaves() {
+        BindingPlan plan = BindingPlan.of(DefaultConfigReaderTest.ConfigFile.class);
+        BindingPlan.Leaf uri = plan.getLeaves().stream()
+                .filter(it -> it.getPath().equals(Arrays.asList("dataSource", "uri")))
+                .findFirst()
+                .get();
+        assertThat(uri.getEnvName())
+                .isEqualTo("DATA_SOURCE_URI");
+        assertThat(uri.getPropertyName())
+                .isEqualTo("dataSource.uri");
+        assertThat(uri.getType())
+                .isEqualTo(String.class);
+    }
+
+    @Test
+    public void elements() {
+        BindingPlan plan = BindingPlan.of(DefaultConfigReaderTest.ElementsConfig.class);
+        assertThat(plan.getLeaves())
+                .extracting(BindingPlan.Leaf::getPropertyName)
+                .containsExactly("pools.*.size", "servers.*.host", "servers.*.port", "tags.*");
+        assertThat(plan.getLeaves().get(0).getEnvName())
+                .isEqualTo("POOLS_*_SIZE");
+        assertThat(plan.getLeaves().get(3).getType())
+                .isEqualTo(String.class);
+    }
+
+    @Test
+    public void cached() {
+        assertThat(BindingPlan.of(DefaultConfigReaderTest.ConfigFile.class))
+                .isSameAs(BindingPlan.of(DefaultConfigReaderTest.ConfigFile.class));
+    }
+
+    @Test
+    public void selfReferential() {
+        BindingPlan plan = BindingPlan.of(TreeConfig.class);
+        assertThat(plan.getLeaves())
+                .extracting(BindingPlan.Leaf::getPropertyName)
+                .containsExactly("child.name", "name");
+    }
+
+    @Data
+    public static class TreeConfig {
+        private String name;
+        private ChildConfig child;
+    }
+
+    @Data
+    public static class ChildConfig {
+        private String name;
+        private TreeConfig parent;
+    }
+}
@@ -0,0 +1,77 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactTreeTest {
+    @Test
+    public void compact() throws Exception {
+        Map<String, Object> shared = new LinkedHashMap<>();
+        shared.put("uri", "jdbc:h2:mem");
+        Map<String, Object> tree = new LinkedHashMap<>();
+        tree.put("primary", shared);
+        tree.put("replica", shared);
+        tree.put("hosts", Arrays.asList(new String("a"), null, new String("a")));
+        tree.put("ports", ImmutableList.of(8080, 8080L, 8080));
+
+        Map<?, ?> compact = (Map<?, ?>) CompactTree.compact(tree);
+        assertThat(compact)
+                .isEqualTo(tree);
+        assertThat(new ArrayList<>(compact.keySet()))
+                .isEqualTo(ImmutableList.of("primary", "replica", "hosts", "ports"));
+        // Shared subtrees stay shared.
+        assertThat(compact.get("replica"))
+                .isSameAs(compact.get("primary"));
+
+        List<?> hosts = (List<?>) compact.get("hosts");
+        assertThat(hosts.get(2))
+                .isSameAs(hosts.get(0));
+        List<?> ports = (List<?>) compact.get("ports");
+        assertThat(ports.get(2))
+                .isSameAs(ports.get(0));
+        assertThat(ports.get(1))
+                .isEqualTo(8080L);
+    }
+
+    @Test
+    public void largeMap() throws Exception {
+        Map<Object, Object> tree = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            tree.put("key" + i, i);
+        }
+        // Keys with the same hash code.
+        tree.put("Aa", "Aa");
+        tree.put("BB", "BB");
+        tree.put(null, "null");
+
+        Map<?, ?> compact = (Map<?, ?>) CompactTree.compact(tree);
+        assertThat(compact)
+                .isEqualTo(tree);
+        assertThat(new ArrayList<>(compact.keySet()))
+                .isEqualTo(new ArrayList<>(tree.keySet()));
+        for (Map.Entry<Object, Object> entry : tree.entrySet()) {
+            assertThat(compact.get(entry.getKey()))
+                    .isEqualTo(entry.getValue());
+        }
+        assertThat(compact.containsKey("key100"))
+                .isFalse();
+        assertThat(compact.get("key100"))
+                .isNull();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void immutable() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> compact = (Map<Object, Object>) CompactTree.compact(ImmutableMap.of("env", "base"));
+        compact.put("env", "release");
+    }
+}
@@ -0,0 +1,53 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConfigChangesTest {
+    @Test
+    public void diff() throws Exception {
+        Map<String, Object> previous = ImmutableMap.of(
+                "env", "first",
+                "dataSource", ImmutableMap.of("uri", "jdbc:h2:mem", "user", "sa"),
+                "tags", ImmutableList.of("a", "b"),
+                "removed", 1);
+        Map<String, Object> current = ImmutableMap.of(
+                "env", "first",
+                "dataSource", ImmutableMap.of("uri", "jdbc:mysql:", "user", "sa"),
+                "tags", ImmutableList.of("a", "c"),
+                "added", ImmutableMap.of("x", 1));
+
+        ConfigChanges changes = ConfigChanges.diff(previous, current);
+        assertThat(ImmutableList.copyOf(changes.getPaths()))
+                .isEqualTo(ImmutableList.of(
+                        ImmutableList.of("dataSource", "uri"),
+                        ImmutableList.of("tags"),
+                        ImmutableList.of("removed"),
+                        ImmutableList.of("added")));
+        assertThat(changes.isChanged())
+                .isTrue();
+        assertThat(changes.isChanged("dataSource"))
+                .isTrue();
+        assertThat(changes.isChanged("dataSource", "user"))
+                .isFalse();
+        assertThat(changes.isChanged("env"))
+                .isFalse();
+        // under a replaced value.
+        assertThat(changes.isChanged("added", "x"))
+                .isTrue();
+    }
+
+    @Test
+    public void same() throws Exception {
+        Map<String, Object> tree = ImmutableMap.of("dataSource", ImmutableMap.of("uri", "jdbc:h2:mem"));
+        assertThat(ConfigChanges.diff(tree, ImmutableMap.of("dataSource", ImmutableMap.of("uri", "jdbc:h2:mem"))).isEmpty())
+                .isTrue();
+        assertThat(ConfigChanges.diff(tree, null).isChanged())
+                .isTrue();
+    }
+}
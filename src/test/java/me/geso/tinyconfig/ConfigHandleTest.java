@@ -0,0 +1,208 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConfigHandleTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path configFile;
+    private Path dataSourceFile;
+
+    @Before
+    public void before() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        System.clearProperty("dataSource.uri");
+        dataSourceFile = temporaryFolder.getRoot().toPath().resolve("datasource.yml");
+        write(dataSourceFile, "uri: jdbc:h2:mem");
+        configFile = temporaryFolder.getRoot().toPath().resolve("config.yml");
+        write(configFile, "env: first\ndataSource: !file " + dataSourceFile);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, configFile.toString());
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+    }
+
+    @Test
+    public void reloadOnChange() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .setReloadDelay(Duration.ofMillis(50))
+                .build();
+        try (ConfigHandle<DefaultConfigReaderTest.ConfigFile> handle = reader.watch(DefaultConfigReaderTest.ConfigFile.class)) {
+            DefaultConfigReaderTest.ConfigFile first = handle.get();
+            assertThat(first.getEnv())
+                    .isEqualTo("first");
+            assertThat(handle.getFiles())
+                    .contains(configFile.toAbsolutePath(), dataSourceFile.toAbsolutePath());
+
+            write(dataSourceFile, "uri: \"jdbc:mysql:\"");
+            awaitUntil(() -> handle.get() != first);
+            assertThat(handle.get().getDataSource().getUri())
+                    .isEqualTo("jdbc:mysql:");
+
+            // keep the current configuration on broken file.
+            DefaultConfigReaderTest.ConfigFile second = handle.get();
+            write(configFile, "env: [broken");
+            Thread.sleep(500);
+            assertThat(handle.get())
+                    .isSameAs(second);
+
+            write(configFile, "env: third");
+            awaitUntil(() -> "third".equals(handle.get().getEnv()));
+        }
+    }
+
+    @Test
+    public void incrementalReload() throws Exception {
+        Path replicaFile = temporaryFolder.getRoot().toPath().resolve("replica.yml");
+        write(replicaFile, "uri: jdbc:h2:replica");
+        write(configFile, "env: first\ndataSource: !file " + dataSourceFile + "\nreplica: !file " + replicaFile);
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .setReloadDelay(Duration.ofMillis(50))
+                .setIncrementalReload(true)
+                .build();
+        List<ConfigChanges> changes = new CopyOnWriteArrayList<>();
+        try (ConfigHandle<DefaultConfigReaderTest.ConfigFile> handle = reader.watch(DefaultConfigReaderTest.ConfigFile.class)) {
+            handle.addListener((previous, current, change) -> changes.add(change));
+            DefaultConfigReaderTest.ConfigFile first = handle.get();
+
+            write(replicaFile, "uri: \"jdbc:mysql:replica\"");
+            awaitUntil(() -> handle.get() != first);
+            DefaultConfigReaderTest.ConfigFile second = handle.get();
+            assertThat(second.getReplica().getUri())
+                    .isEqualTo("jdbc:mysql:replica");
+            assertThat(second.getEnv())
+                    .isEqualTo("first");
+            // The unchanged section is reused.
+            assertThat(second.getDataSource())
+                    .isSameAs(first.getDataSource());
+            assertThat(changes)
+                    .hasSize(1);
+            assertThat(changes.get(0).getPaths())
+                    .isEqualTo(ImmutableSet.of(ImmutableList.of("replica", "uri")));
+
+            // Nothing changed: the configuration is kept.
+            write(configFile, "env: first\ndataSource: !file " + dataSourceFile + "\nreplica: !file " + replicaFile + "\n");
+            handle.reload();
+            assertThat(handle.get())
+                    .isSameAs(second);
+            assertThat(changes)
+                    .hasSize(1);
+        }
+    }
+
+    @Test
+    public void incrementalReloadByJackson() throws Exception {
+        String sections = "\ndataSource: !file " + dataSourceFile + "\ndata-source: !file " + dataSourceFile
+                + "\nreplica:\n  uri: jdbc:h2:replica";
+        write(configFile, "env: first" + sections);
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .setReloadDelay(Duration.ofMinutes(10))
+                .setIncrementalReload(true)
+                .build();
+        try (ConfigHandle<RenamedConfig> renamed = reader.watch(RenamedConfig.class);
+             ConfigHandle<CreatorConfig> creator = reader.watch(CreatorConfig.class)) {
+            RenamedConfig first = renamed.get();
+            write(configFile, "env: second" + sections);
+            renamed.reload();
+            creator.reload();
+
+            // The section is found by its name in the configuration.
+            assertThat(renamed.get().getEnv())
+                    .isEqualTo("second");
+            assertThat(renamed.get().getDataSource())
+                    .isSameAs(first.getDataSource());
+            // The required creator property isn't removed from the mapping.
+            assertThat(creator.get().getEnv())
+                    .isEqualTo("second");
+            assertThat(creator.get().getDataSource().getUri())
+                    .isEqualTo("jdbc:h2:mem");
+        }
+    }
+
+    @Test
+    public void reloadOnNewFragment() throws Exception {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        Path directory = temporaryFolder.newFolder("conf.d").toPath();
+        write(directory.resolve("10-env.yml"), "env: first");
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .setReloadDelay(Duration.ofMillis(50))
+                .addDirectoryLayer(directory.toString())
+                .build();
+        try (ConfigHandle<DefaultConfigReaderTest.ConfigFile> handle = reader.watch(DefaultConfigReaderTest.ConfigFile.class)) {
+            assertThat(handle.get().getEnv())
+                    .isEqualTo("first");
+
+            Path fragment = directory.resolve("20-env.yml");
+            write(fragment, "env: second");
+            awaitUntil(() -> "second".equals(handle.get().getEnv()));
+
+            Files.delete(fragment);
+            awaitUntil(() -> "first".equals(handle.get().getEnv()));
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Data
+    public static class RenamedConfig {
+        private String env;
+        @JsonProperty("data-source")
+        private DefaultConfigReaderTest.ConfigFile.DataSourceConfig dataSource;
+        @JsonIgnore
+        private DefaultConfigReaderTest.ConfigFile.DataSourceConfig replica;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Getter
+    @Setter
+    public static class CreatorConfig {
+        private String env;
+        private DefaultConfigReaderTest.ConfigFile.DataSourceConfig dataSource;
+        private DefaultConfigReaderTest.ConfigFile.DataSourceConfig replica;
+
+        @JsonCreator
+        public CreatorConfig(@JsonProperty(value = "dataSource", required = true)
+                                     DefaultConfigReaderTest.ConfigFile.DataSourceConfig dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.get()) {
+            assertThat(System.nanoTime())
+                    .isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
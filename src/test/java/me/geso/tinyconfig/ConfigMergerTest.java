@@ -0,0 +1,82 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConfigMergerTest {
+    @Test
+    public void merge() throws Exception {
+        Map<String, Object> untouched = ImmutableMap.of("uri", "jdbc:h2:mem");
+        Map<String, Object> base = ImmutableMap.of(
+                "env", "base",
+                "replica", untouched,
+                "dataSource", ImmutableMap.of("uri", "jdbc:h2:mem", "user", "sa"),
+                "tags", ImmutableList.of("a", "b"));
+        Map<String, Object> added = ImmutableMap.of("size", 10);
+        Map<String, Object> overlay = ImmutableMap.of(
+                "env", "release",
+                "dataSource", ImmutableMap.of("uri", "jdbc:mysql:"),
+                "tags", ImmutableList.of("c"),
+                "pool", added);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> merged = (Map<String, Object>) ConfigMerger.merge(base, overlay);
+        assertThat(merged)
+                .isEqualTo(ImmutableMap.of(
+                        "env", "release",
+                        "replica", untouched,
+                        "dataSource", ImmutableMap.of("uri", "jdbc:mysql:", "user", "sa"),
+                        "tags", ImmutableList.of("c"),
+                        "pool", added));
+        assertThat(merged.keySet())
+                .containsExactly("env", "replica", "dataSource", "tags", "pool");
+        // Subtrees which the overlay doesn't touch are shared.
+        assertThat(merged.get("replica"))
+                .isSameAs(untouched);
+        assertThat(merged.get("pool"))
+                .isSameAs(added);
+    }
+
+    @Test
+    public void replace() throws Exception {
+        Map<String, Object> base = ImmutableMap.of("dataSource", ImmutableMap.of("uri", "jdbc:h2:mem"));
+        Map<String, Object> overlay = new HashMap<>();
+        overlay.put("dataSource", null);
+        assertThat(ConfigMerger.merge(base, overlay))
+                .isEqualTo(overlay);
+        assertThat(ConfigMerger.merge(base, "scalar"))
+                .isEqualTo("scalar");
+        assertThat(ConfigMerger.merge(null, base))
+                .isSameAs(base);
+        assertThat(ConfigMerger.merge(base, Collections.emptyMap()))
+                .isSameAs(base);
+    }
+
+    @Test
+    public void conflicts() throws Exception {
+        Map<String, Object> base = ImmutableMap.of(
+                "env", "base",
+                "port", 80,
+                "dataSource", ImmutableMap.of("uri", "jdbc:h2:mem", "user", "sa"));
+        Map<String, Object> overlay = ImmutableMap.of(
+                "env", "base",
+                "port", 8080,
+                "dataSource", ImmutableMap.of("uri", "jdbc:mysql:", "password", "secret"));
+
+        List<List<Object>> conflicts = new ArrayList<>();
+        ConfigMerger.merge(base, overlay, conflicts::add);
+        assertThat(conflicts)
+                .isEqualTo(ImmutableList.of(
+                        ImmutableList.of("port"),
+                        ImmutableList.of("dataSource", "uri")));
+    }
+}
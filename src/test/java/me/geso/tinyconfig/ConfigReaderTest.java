@@ -0,0 +1,55 @@
+package me.geso.tinyconfig;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConfigReaderTest {
+    // Implements only the methods of the original interface.
+    private final ConfigReader reader = new ConfigReader() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T read(Class<T> klass, String profile) throws IOException {
+            if (profile.equals("missing")) {
+                throw new IOException("missing");
+            }
+            DefaultConfigReaderTest.ConfigFile config = new DefaultConfigReaderTest.ConfigFile();
+            config.setEnv(profile);
+            return (T) config;
+        }
+
+        @Override
+        public <T> T read(Class<T> klass) throws IOException {
+            return read(klass, "default");
+        }
+    };
+
+    @Test
+    public void readLazy() throws Exception {
+        assertThat(reader.readLazy(DefaultConfigReaderTest.ConfigFile.class, "local").getEnv())
+                .isEqualTo("local");
+    }
+
+    @Test
+    public void readAsync() throws Exception {
+        assertThat(reader.readAsync(DefaultConfigReaderTest.ConfigFile.class, Runnable::run).get().getEnv())
+                .isEqualTo("default");
+        assertThatThrownBy(() -> reader.readAsync(DefaultConfigReaderTest.ConfigFile.class, "missing", Runnable::run).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void unsupported() {
+        assertThatThrownBy(() -> reader.watch(DefaultConfigReaderTest.ConfigFile.class))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(reader::readView)
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(reader::openSession)
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
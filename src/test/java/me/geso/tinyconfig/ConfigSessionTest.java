@@ -0,0 +1,105 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ClassToInstanceMap;
+import lombok.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConfigSessionTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger includes = new AtomicInteger();
+    private ConfigReader reader;
+
+    @Before
+    public void before() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        reader = ConfigReaderBuilder.create()
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onPhaseStart(Phase phase) {
+                        if (phase == Phase.LOAD) {
+                            loads.incrementAndGet();
+                        }
+                    }
+
+                    @Override
+                    public void onInclude(String location, long bytes, long elapsedNanos) {
+                        includes.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty("replica.uri");
+    }
+
+    @Test
+    public void read() throws Exception {
+        System.setProperty("replica.uri", "jdbc:pg:replica");
+        ConfigSession session = reader.openSession();
+        DefaultConfigReaderTest.ConfigFile config = session.read(DefaultConfigReaderTest.ConfigFile.class);
+        ReplicaConfig replica = session.read(ReplicaConfig.class);
+        ConfigView view = session.readView();
+
+        assertThat(config.getEnv())
+                .isEqualTo("shared");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:pg:replica");
+        assertThat(replica.getReplica().getUri())
+                .isEqualTo("jdbc:pg:replica");
+        assertThat(view.getString("env"))
+                .isEqualTo("shared");
+        assertThat(loads.get())
+                .isEqualTo(1);
+        assertThat(includes.get())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void overridesPerClass() throws Exception {
+        ConfigSession session = reader.openSession();
+        System.setProperty("replica.uri", "jdbc:pg:replica");
+        assertThat(session.read(ReplicaConfig.class).getReplica().getUri())
+                .isEqualTo("jdbc:pg:replica");
+        System.clearProperty("replica.uri");
+        // The override isn't written into the shared tree.
+        assertThat(session.read(ReplicaConfig.class).getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+    }
+
+    @Test
+    public void readAll() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ConfigSession session = reader.openSession();
+            ClassToInstanceMap<Object> serial = session.readAll(DefaultConfigReaderTest.ConfigFile.class, ReplicaConfig.class);
+            ClassToInstanceMap<Object> parallel = session.readAll(executor, DefaultConfigReaderTest.ConfigFile.class, ReplicaConfig.class);
+            assertThat(serial.getInstance(DefaultConfigReaderTest.ConfigFile.class).getEnv())
+                    .isEqualTo("shared");
+            assertThat(serial.getInstance(ReplicaConfig.class).getReplica().getUri())
+                    .isEqualTo("jdbc:h2:mem");
+            assertThat(parallel)
+                    .isEqualTo(serial);
+            assertThat(loads.get())
+                    .isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Data
+    public static class ReplicaConfig {
+        private DefaultConfigReaderTest.ConfigFile.DataSourceConfig replica;
+    }
+}
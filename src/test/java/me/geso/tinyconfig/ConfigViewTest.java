@@ -0,0 +1,133 @@
+package me.geso.tinyconfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConfigViewTest {
+    private ConfigReader reader;
+
+    @Before
+    public void before() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        reader = ConfigReaderBuilder.create()
+                .build();
+    }
+
+    @After
+    public void after() {
+        System.clearProperty("port");
+        System.clearProperty("tags.0");
+        System.clearProperty("missing");
+    }
+
+    @Test
+    public void readView() throws Exception {
+        ConfigView view = reader.readView("types");
+        assertThat(view.getString("env"))
+                .isEqualTo("types");
+        assertThat(view.getInt("port"))
+                .isEqualTo(8080);
+        assertThat(view.getString("port"))
+                .isEqualTo("8080");
+        assertThat(view.getBoolean("debug"))
+                .isTrue();
+        assertThat(view.getDouble("ratio"))
+                .isEqualTo(0.5);
+        assertThat(view.getString("big"))
+                .isEqualTo("12345678901234567890");
+        assertThat(view.getString("createdAt"))
+                .isEqualTo("2001-12-14T21:59:43.100Z");
+        assertThat(view.getString("tags.1"))
+                .isEqualTo("b");
+        assertThat(view.getString("1"))
+                .isEqualTo("numeric key");
+        // DATA_SOURCE_URI may be left by DefaultConfigReaderTest.
+        assertThat(view.getString("dataSource.uri"))
+                .startsWith("jdbc:");
+        assertThat(view.getInt("dataSource.unknownNested"))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void overrides() throws Exception {
+        System.setProperty("port", "9090");
+        System.setProperty("tags.0", "x");
+        System.setProperty("missing", "value");
+        ConfigView view = reader.readView("types");
+        assertThat(view.getInt("port"))
+                .isEqualTo(9090);
+        assertThat(view.getString("tags.0"))
+                .isEqualTo("x");
+        // Paths which aren't in the file aren't added.
+        assertThat(view.has("missing"))
+                .isFalse();
+    }
+
+    @Test
+    public void subtree() throws Exception {
+        ConfigView view = reader.readView("types");
+        ConfigView dataSource = view.subtree("dataSource");
+        assertThat(dataSource.keys())
+                .containsExactly("unknownNested", "uri");
+        assertThat(dataSource.getString("uri"))
+                .startsWith("jdbc:");
+        assertThat(dataSource.has("env"))
+                .isFalse();
+
+        assertThat(view.subtree("tags").toMap())
+                .containsEntry("0", "a")
+                .containsEntry("1", "b")
+                .hasSize(2);
+        assertThat(view.subtree("tags").subtree("0").size())
+                .isEqualTo(0);
+        assertThat(view.subtree("nothing").keys())
+                .isEmpty();
+    }
+
+    @Test
+    public void defaults() throws Exception {
+        ConfigView view = reader.readView("types");
+        assertThat(view.getString("nothing"))
+                .isNull();
+        assertThat(view.getString("nothing", "default"))
+                .isEqualTo("default");
+        assertThat(view.getInt("nothing", 1))
+                .isEqualTo(1);
+        assertThat(view.getLong("port", 1))
+                .isEqualTo(8080L);
+        assertThat(view.getBoolean("nothing", true))
+                .isTrue();
+        assertThatThrownBy(() -> view.getInt("nothing"))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("`nothing`");
+    }
+
+    @Test
+    public void invalidValue() throws Exception {
+        ConfigView view = reader.readView("types");
+        assertThatThrownBy(() -> view.getInt("env"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Can not convert `env` to int: types");
+        assertThatThrownBy(() -> view.getInt("big"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.subtree("dataSource").getBoolean("uri"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Can not convert `dataSource.uri` to boolean");
+    }
+
+    @Test
+    public void internedKeys() throws Exception {
+        ConfigView view = reader.readView("types");
+        for (String key : view.keys()) {
+            assertThat(key)
+                    .isSameAs(key.intern());
+        }
+    }
+}
@@ -1,23 +1,50 @@
 package me.geso.tinyconfig;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @Slf4j
 public class DefaultConfigReaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void before() {
         System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
         System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        System.clearProperty("port");
+        System.clearProperty("dataSource.uri");
     }
 
     @Test
@@ -76,10 +103,463 @@ public class DefaultConfigReaderTest {
                 .isEqualTo("jdbc:pg:");
     }
 
+    @Test
+    public void readTypes() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        ConfigFile config = reader.read(ConfigFile.class, "types");
+        assertThat(config.getEnv())
+                .isEqualTo("types");
+        assertThat(config.getPort())
+                .isEqualTo(8080);
+        assertThat(config.getCreatedAt())
+                .isEqualTo("2001-12-14T21:59:43.100Z");
+    }
+
+    @Test
+    public void rewriteIntByProperty() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        System.setProperty("port", "9090");
+        ConfigFile config = reader.read(ConfigFile.class, "types");
+        assertThat(config.getPort())
+                .isEqualTo(9090);
+    }
+
+    @Test
+    public void rewriteSharedInclude() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        System.setProperty("dataSource.uri", "jdbc:pg:");
+        ConfigFile config = reader.read(ConfigFile.class);
+        assertThat(config.getDataSource().getUri())
+                .isEqualTo("jdbc:pg:");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+    }
+
+    @Test
+    public void readCompactTree() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .setCompactTree(true)
+                .build();
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        System.setProperty("dataSource.uri", "jdbc:pg:");
+        ConfigFile config = reader.read(ConfigFile.class);
+        assertThat(config)
+                .isEqualTo(ConfigReaderBuilder.create().build().read(ConfigFile.class));
+        assertThat(config.getDataSource().getUri())
+                .isEqualTo("jdbc:pg:");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+    }
+
+    @Test
+    public void readDataFiles() throws Exception {
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-data.yml");
+        List<ConfigReader> readers = ImmutableList.of(
+                ConfigReaderBuilder.create()
+                        .build(),
+                ConfigReaderBuilder.create()
+                        .setStreaming(true)
+                        .build(),
+                ConfigReaderBuilder.create()
+                        .setSnapshotDirectory(temporaryFolder.getRoot().toPath())
+                        .build());
+        for (ConfigReader reader : readers) {
+            // The second read of the snapshot reader binds the snapshot.
+            for (int i = 0; i < 2; i++) {
+                DataConfig config = reader.read(DataConfig.class);
+                assertThat(config.getBlocklist().contains("203.0.113.0/24"))
+                        .isTrue();
+                assertThat(config.getRateLimits().find("/api/upload").get(1))
+                        .isEqualTo("10");
+            }
+        }
+
+        System.setProperty("blocklist", "src/test/resources/datasource.yml");
+        try {
+            assertThat(readers.get(0).read(DataConfig.class).getBlocklist().get(1))
+                    .isEqualTo("uri: \"jdbc:h2:mem\"");
+        } finally {
+            System.clearProperty("blocklist");
+        }
+    }
+
+    @Test
+    public void readElementOverrides() throws Exception {
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-elements.yml");
+        Map<String, String> properties = ImmutableMap.of(
+                "servers.1.host", "c.example.com",
+                "servers.2.host", "ignored.example.com",
+                "pools.primary.size", "20",
+                "pools.secondary.size", "5",
+                "tags.0", "x");
+        properties.forEach(System::setProperty);
+        try {
+            List<ConfigReader> readers = ImmutableList.of(
+                    ConfigReaderBuilder.create()
+                            .build(),
+                    ConfigReaderBuilder.create()
+                            .setStreaming(true)
+                            .build(),
+                    ConfigReaderBuilder.create()
+                            .setSnapshotDirectory(temporaryFolder.getRoot().toPath())
+                            .build());
+            for (ConfigReader reader : readers) {
+                for (int i = 0; i < 2; i++) {
+                    ElementsConfig config = reader.read(ElementsConfig.class);
+                    assertThat(config.getServers())
+                            .extracting(ElementsConfig.ServerConfig::getHost)
+                            .containsExactly("a.example.com", "c.example.com");
+                    assertThat(config.getServers().get(1).getPort())
+                            .isEqualTo(80);
+                    assertThat(config.getPools().get("primary").getSize())
+                            .isEqualTo(20);
+                    assertThat(config.getPools().get("secondary").getSize())
+                            .isEqualTo(5);
+                    assertThat(config.getTags())
+                            .isEqualTo(ImmutableList.of("x", "b"));
+                }
+            }
+        } finally {
+            properties.keySet().forEach(System::clearProperty);
+        }
+    }
+
+    @Test
+    public void listener() throws Exception {
+        List<String> events = new ArrayList<>();
+        MetricRegistry registry = new MetricRegistry();
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onPhaseStart(Phase phase) {
+                        events.add("start " + phase);
+                    }
+
+                    @Override
+                    public void onPhaseEnd(Phase phase, long elapsedNanos) {
+                        events.add("end " + phase);
+                    }
+
+                    @Override
+                    public void onInclude(String location, long bytes, long elapsedNanos) {
+                        events.add("include " + Paths.get(location).getFileName() + " " + bytes);
+                    }
+
+                    @Override
+                    public void onOverride(PathValue pathValue) {
+                        events.add("override " + pathValue.getPath() + " " + pathValue.getValueLoader().getSimpleName());
+                    }
+                })
+                .addListener(new MetricsConfigReadListener(registry))
+                .build();
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        System.setProperty("port", "9090");
+        reader.read(ConfigFile.class);
+
+        // DATA_SOURCE_URI may be left by rewriteByEnv.
+        assertThat(events)
+                .containsSubsequence(
+                        "start LOAD",
+                        "include datasource.yml 23",
+                        "end LOAD",
+                        "start SCAN",
+                        "end SCAN",
+                        "start REWRITE",
+                        "override [port] PropertyValueLoader",
+                        "end REWRITE",
+                        "start BIND",
+                        "end BIND");
+        assertThat(registry.timer("tinyconfig.phase.bind").getCount())
+                .isEqualTo(1);
+        assertThat(registry.histogram("tinyconfig.include.bytes").getSnapshot().getMax())
+                .isEqualTo(23);
+        assertThat(registry.counter("tinyconfig.override.PropertyValueLoader").getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void readLayers() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addLayer("layer-base.yml")
+                .addLayer("layer-${profile}.yml")
+                .addOptionalLayer("layer-${profile}-canary.yml")
+                .addOptionalFileLayer("src/test/resources/no-such-layer.yml")
+                .build();
+        ConfigFile release = reader.read(ConfigFile.class, "release");
+        assertThat(release.getEnv())
+                .isEqualTo("release");
+        assertThat(release.getPort())
+                .isEqualTo(8080);
+        assertThat(release.getDataSource().getUri())
+                .isEqualTo("jdbc:mysql:");
+        assertThat(release.getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+
+        ConfigFile base = reader.read(ConfigFile.class, "base");
+        assertThat(base.getEnv())
+                .isEqualTo("base");
+        assertThat(base.getPort())
+                .isEqualTo(80);
+    }
+
+    @Test
+    public void readLayersConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ConfigReader reader = ConfigReaderBuilder.create()
+                    .setIncludeExecutor(executor)
+                    .addLayer("layer-base.yml")
+                    .addFileLayer("src/test/resources/layer-${profile}.yml")
+                    .addLayer("layer-release-canary.yml")
+                    .build();
+            System.setProperty("dataSource.uri", "jdbc:pg:");
+            ConfigFile config = reader.read(ConfigFile.class, "release");
+            assertThat(config.getEnv())
+                    .isEqualTo("release");
+            assertThat(config.getPort())
+                    .isEqualTo(8080);
+            // DATA_SOURCE_URI may be left by rewriteByEnv.
+            assertThat(config.getDataSource().getUri())
+                    .startsWith("jdbc:");
+            assertThat(config.getReplica().getUri())
+                    .isEqualTo("jdbc:h2:mem");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readLayersWithConfigFile() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addLayer("layer-base.yml")
+                .build();
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        ConfigFile config = reader.read(ConfigFile.class);
+        // The configuration file is the top layer.
+        assertThat(config.getEnv())
+                .isEqualTo("shared");
+        assertThat(config.getPort())
+                .isEqualTo(80);
+    }
+
+    @Test
+    public void readMissingLayer() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addLayer("layer-base.yml")
+                .addLayer("layer-${profile}.yml")
+                .build();
+        assertThatThrownBy(() -> reader.read(ConfigFile.class, "staging"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("layer-staging.yml");
+    }
+
+    @Test
+    public void readDirectoryLayer() throws Exception {
+        Path directory = temporaryFolder.newFolder("conf.d").toPath();
+        Path base = directory.resolve("10-base.yml");
+        Path port = directory.resolve("20-port.yml");
+        Files.write(base, "env: base\nport: 80\ndataSource:\n  uri: jdbc:h2:mem\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(port, "env: base\nport: 8080\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("30-replica.yml"),
+                "replica: !file src/test/resources/datasource.yml\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("notes.txt"), "env: ignored\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> conflicts = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DefaultConfigReader reader = (DefaultConfigReader) ConfigReaderBuilder.create()
+                    .setIncludeExecutor(executor)
+                    .addDirectoryLayer(directory.toString())
+                    .addListener(new ConfigReadListener() {
+                        @Override
+                        public void onConflict(List<String> path, String previous, String location) {
+                            conflicts.add(path + " " + Paths.get(previous).getFileName() + " " + Paths.get(location).getFileName());
+                        }
+                    })
+                    .build();
+            ConfigFile config = reader.read(ConfigFile.class);
+            assertThat(config.getEnv())
+                    .isEqualTo("base");
+            assertThat(config.getPort())
+                    .isEqualTo(8080);
+            assertThat(config.getReplica().getUri())
+                    .isEqualTo("jdbc:h2:mem");
+            // The same values aren't conflicts.
+            assertThat(conflicts)
+                    .isEqualTo(ImmutableList.of("[port] 10-base.yml 20-port.yml"));
+
+            // Unmodified fragments are reused.
+            Map<?, ?> tree = (Map<?, ?>) reader.readInternal("local").getTree();
+            assertThat(((Map<?, ?>) reader.readInternal("local").getTree()).get("dataSource"))
+                    .isSameAs(tree.get("dataSource"));
+            Files.write(base, "dataSource:\n  uri: \"jdbc:mysql:\"\n".getBytes(StandardCharsets.UTF_8));
+            config = reader.read(ConfigFile.class);
+            assertThat(config.getDataSource().getUri())
+                    .isEqualTo("jdbc:mysql:");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readDirectoryLayerWithIncludeChangedDuringParse() throws Exception {
+        Path directory = temporaryFolder.newFolder("conf.d").toPath();
+        Path replica = temporaryFolder.getRoot().toPath().resolve("replica.yml");
+        Files.write(replica, "uri: jdbc:h2:mem\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("10-replica.yml"), ("replica: !file " + replica + "\n").getBytes(StandardCharsets.UTF_8));
+
+        AtomicBoolean changed = new AtomicBoolean();
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addDirectoryLayer(directory.toString())
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onInclude(String location, long bytes, long elapsedNanos) {
+                        // The include is modified after it's read, before the fragment is cached.
+                        if (changed.compareAndSet(false, true)) {
+                            try {
+                                Files.write(replica, "uri: \"jdbc:mysql:replica\"\n".getBytes(StandardCharsets.UTF_8));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    }
+                })
+                .build();
+        assertThat(reader.read(ConfigFile.class).getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+        assertThat(reader.read(ConfigFile.class).getReplica().getUri())
+                .isEqualTo("jdbc:mysql:replica");
+    }
+
+    @Test
+    public void readMissingDirectoryLayer() throws Exception {
+        ConfigReader optional = ConfigReaderBuilder.create()
+                .addLayer("layer-base.yml")
+                .addOptionalDirectoryLayer("src/test/resources/no-such-directory")
+                .build();
+        assertThat(optional.read(ConfigFile.class).getEnv())
+                .isEqualTo("base");
+
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addDirectoryLayer("src/test/resources/no-such-directory")
+                .build();
+        assertThatThrownBy(() -> reader.read(ConfigFile.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("no-such-directory");
+    }
+
+    @Test
+    public void readAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ConfigReader reader = ConfigReaderBuilder.create()
+                    .build();
+            CompletableFuture<ConfigFile> future = reader.readAsync(ConfigFile.class, "release", executor);
+            assertThat(future.get(10, TimeUnit.SECONDS).getEnv())
+                    .isEqualTo("release");
+
+            assertThatThrownBy(() -> reader.readAsync(ConfigFile.class, "staging", executor).get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelReadAsync() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        List<ConfigReadListener.Phase> phases = Collections.synchronizedList(new ArrayList<>());
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onPhaseStart(Phase phase) {
+                        phases.add(phase);
+                        if (phase == Phase.LOAD) {
+                            loading.countDown();
+                            try {
+                                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    }
+                })
+                .build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<ConfigFile> future = reader.readAsync(ConfigFile.class, executor);
+            loading.await();
+            assertThat(future.cancel(true))
+                    .isTrue();
+
+            // The read stops before binding, and the executor thread isn't left interrupted.
+            Future<Boolean> next = executor.submit(() -> Thread.currentThread().isInterrupted());
+            assertThat(next.get(10, TimeUnit.SECONDS))
+                    .isFalse();
+            assertThat(phases)
+                    .doesNotContain(ConfigReadListener.Phase.BIND);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readConcurrently() throws Exception {
+        ExecutorService includeExecutor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<ConfigReader> readers = ImmutableList.of(
+                    ConfigReaderBuilder.create()
+                            .build(),
+                    ConfigReaderBuilder.create()
+                            .setIncludeExecutor(includeExecutor)
+                            .build(),
+                    ConfigReaderBuilder.create()
+                            .setStreaming(true)
+                            .build(),
+                    ConfigReaderBuilder.create()
+                            .setSnapshotDirectory(temporaryFolder.getRoot().toPath())
+                            .build());
+            System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+            System.setProperty("port", "9090");
+            ConfigFile expected = readers.get(0).read(ConfigFile.class);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<ConfigFile>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<ConfigFile> results = new ArrayList<>();
+                    for (int j = 0; j < 50; j++) {
+                        results.add(readers.get(j % readers.size()).read(ConfigFile.class));
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            for (Future<List<ConfigFile>> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS))
+                        .hasSize(50)
+                        .containsOnly(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+            includeExecutor.shutdownNow();
+        }
+    }
+
     @Data
     public static class ConfigFile {
         private String env;
+        private int port;
+        private String createdAt;
         private DataSourceConfig dataSource;
+        private DataSourceConfig replica;
 
         @Data
         public static class DataSourceConfig {
@@ -87,6 +567,30 @@ public class DefaultConfigReaderTest {
         }
     }
 
+    @Data
+    public static class DataConfig {
+        private MappedLines blocklist;
+        private MappedCsv rateLimits;
+    }
+
+    @Data
+    public static class ElementsConfig {
+        private List<ServerConfig> servers;
+        private Map<String, PoolConfig> pools;
+        private List<String> tags;
+
+        @Data
+        public static class ServerConfig {
+            private String host;
+            private int port;
+        }
+
+        @Data
+        public static class PoolConfig {
+            private int size;
+        }
+    }
+
     // Hack: http://stackoverflow.com/questions/318239/how-do-i-set-environment-variables-from-java
     @SuppressWarnings("unchecked")
     private static void setEnv(Map<String, String> newenv) {
@@ -1,13 +1,27 @@
 package me.geso.tinyconfig;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.yaml.snakeyaml.Yaml;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ImportableConstructorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testFile() {
         ImportableConstructor importableConstructor = new ImportableConstructor();
@@ -36,4 +50,80 @@ public class ImportableConstructorTest {
                 .isEqualTo("local");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testIncludeCache() {
+        ImportableConstructor importableConstructor = new ImportableConstructor();
+        Yaml yaml = new Yaml(importableConstructor);
+        importableConstructor.setYaml(yaml);
+        Map load = (Map) yaml.load("---\nfoo: !file src/test/resources/config-local.yml\nbar: !file src/test/resources/config-local.yml");
+        assertThat(load.get("foo"))
+                .isSameAs(load.get("bar"));
+    }
+
+    @Test
+    public void testIncludeCycle() throws IOException {
+        Path a = temporaryFolder.getRoot().toPath().resolve("a.yml");
+        Path b = temporaryFolder.getRoot().toPath().resolve("b.yml");
+        Files.write(a, ("b: !file " + b).getBytes(StandardCharsets.UTF_8));
+        Files.write(b, ("a: !file " + a).getBytes(StandardCharsets.UTF_8));
+
+        ImportableConstructor importableConstructor = new ImportableConstructor();
+        Yaml yaml = new Yaml(importableConstructor);
+        importableConstructor.setYaml(yaml);
+        assertThatThrownBy(() -> yaml.load("---\nfoo: !file " + a))
+                .isInstanceOf(ImportableConstructor.YamlImportCycleException.class)
+                .hasMessageContaining(a.toRealPath() + " -> " + b.toRealPath() + " -> " + a.toRealPath());
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelInclude() throws IOException {
+        Path leaf = write("leaf.yml", "value: leaf");
+        StringBuilder root = new StringBuilder("---\n");
+        for (int i = 0; i < 10; i++) {
+            Path fragment = write("fragment" + i + ".yml", "id: " + i + "\nleaf: !file " + leaf);
+            root.append("fragment").append(i).append(": !file ").append(fragment).append("\n");
+        }
+
+        Object serial = load(root.toString(), null);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            assertThat(load(root.toString(), executorService))
+                    .isEqualTo(serial);
+        } finally {
+            executorService.shutdown();
+        }
+        Map fragment3 = (Map) ((Map) serial).get("fragment3");
+        assertThat(fragment3.get("id"))
+                .isEqualTo(3);
+        assertThat(((Map) fragment3.get("leaf")).get("value"))
+                .isEqualTo("leaf");
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelIncludeCycle() throws IOException {
+        Path a = temporaryFolder.getRoot().toPath().resolve("a.yml");
+        Path b = temporaryFolder.getRoot().toPath().resolve("b.yml");
+        Files.write(a, ("b: !file " + b).getBytes(StandardCharsets.UTF_8));
+        Files.write(b, ("a: !file " + a).getBytes(StandardCharsets.UTF_8));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            assertThatThrownBy(() -> load("---\na: !file " + a + "\nb: !file " + b, executorService))
+                    .hasStackTraceContaining("include cycle detected");
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static Object load(String document, Executor executor) {
+        ImportableConstructor importableConstructor = new ImportableConstructor(executor);
+        importableConstructor.setYaml(new Yaml(importableConstructor));
+        return importableConstructor.load(new StringReader(document));
+    }
+}
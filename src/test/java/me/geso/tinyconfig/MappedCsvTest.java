@@ -0,0 +1,27 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCsvTest {
+    @Test
+    public void read() throws Exception {
+        MappedCsv csv = MappedCsv.open(Paths.get("src/test/resources/rate-limits.csv"));
+        assertThat(csv.size())
+                .isEqualTo(3);
+        assertThat(csv.get(1))
+                .isEqualTo(ImmutableList.of("/api/upload", "10", "per hour, per user"));
+        assertThat(csv.get(2))
+                .isEqualTo(ImmutableList.of("/api/\"quoted\"", "1", ""));
+        assertThat(csv.find("/api/search"))
+                .isEqualTo(ImmutableList.of("/api/search", "100", "per minute"));
+        assertThat(csv.find("/api/\"quoted\""))
+                .isEqualTo(csv.get(2));
+        assertThat(csv.find("/api/unknown"))
+                .isNull();
+    }
+}
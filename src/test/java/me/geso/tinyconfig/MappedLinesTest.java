@@ -0,0 +1,91 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedLinesTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void read() throws Exception {
+        MappedLines lines = MappedLines.open(Paths.get("src/test/resources/blocklist.txt"));
+        assertThat(lines.size())
+                .isEqualTo(5);
+        assertThat(lines.get(1))
+                .isEqualTo("198.51.100.7");
+        assertThat(Lists.newArrayList(lines))
+                .isEqualTo(ImmutableList.of("192.0.2.1", "198.51.100.7", "203.0.113.0/24", "", "spam.example.com"));
+        assertThat(lines.contains("spam.example.com"))
+                .isTrue();
+        assertThat(lines.contains("spam.example.org"))
+                .isFalse();
+        assertThat(lines.indexOf(""))
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void readWithoutTerminator() throws Exception {
+        Path file = temporaryFolder.newFile("lines.txt").toPath();
+        Files.write(file, "b\na\nb\n\u3042".getBytes(StandardCharsets.UTF_8));
+        MappedLines lines = MappedLines.open(file);
+        assertThat(Lists.newArrayList(lines))
+                .isEqualTo(ImmutableList.of("b", "a", "b", "\u3042"));
+        assertThat(lines.indexOf("b"))
+                .isEqualTo(0);
+        assertThat(lines.indexOf("\u3042"))
+                .isEqualTo(3);
+        assertThat(MappedLines.open(temporaryFolder.newFile("empty.txt").toPath()).size())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void replacedBeforeAccess() throws Exception {
+        Path file = temporaryFolder.newFile("lines.txt").toPath();
+        Files.write(file, "a\nb\n".getBytes(StandardCharsets.UTF_8));
+        MappedLines lines = MappedLines.open(file);
+        MappedCsv csv = MappedCsv.open(file);
+
+        Path replacement = temporaryFolder.newFile("replacement.txt").toPath();
+        Files.write(replacement, "c\nd\ne\n".getBytes(StandardCharsets.UTF_8));
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        assertThatThrownBy(() -> lines.get(0))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasStackTraceContaining("Modified after it's opened");
+        assertThatThrownBy(csv::size)
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(Lists.newArrayList(MappedLines.open(file)))
+                .isEqualTo(ImmutableList.of("c", "d", "e"));
+    }
+
+    @Test
+    public void equality() throws Exception {
+        Path file = temporaryFolder.newFile("lines.txt").toPath();
+        Files.write(file, "a\n".getBytes(StandardCharsets.UTF_8));
+        MappedLines lines = MappedLines.open(file);
+        assertThat(MappedLines.open(file))
+                .isEqualTo(lines);
+
+        Files.write(file, "a\nb\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(MappedLines.open(file))
+                .isNotEqualTo(lines);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRange() throws Exception {
+        MappedLines.open(Paths.get("src/test/resources/blocklist.txt")).get(5);
+    }
+}
@@ -0,0 +1,131 @@
+package me.geso.tinyconfig;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OverridesTest {
+    private final BindingPlan plan = BindingPlan.of(DefaultConfigReaderTest.ConfigFile.class);
+
+    @Test
+    public void scanSnapshot() {
+        // The snapshot is smaller than the plan.
+        MapValueLoader first = new MapValueLoader(ImmutableMap.of("dataSource.uri", "first"));
+        MapValueLoader second = new MapValueLoader(ImmutableMap.of("dataSource.uri", "second", "env", "second"));
+        Overrides overrides = Overrides.resolve(plan, ImmutableList.of(first, second));
+
+        assertThat(overrides.size())
+                .isEqualTo(2);
+        assertThat(toMap(overrides))
+                .isEqualTo(ImmutableMap.of("dataSource.uri", "first", "env", "second"));
+        int uri = indexOf("dataSource.uri");
+        assertThat(overrides.getValueLoader(uri))
+                .isSameAs(first);
+        assertThat(overrides.getValueLoader(indexOf("port")))
+                .isNull();
+    }
+
+    @Test
+    public void scanLeaves() {
+        // The snapshot is larger than the plan.
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.put("unrelated" + i, "x");
+        }
+        builder.put("port", "9090");
+        Overrides overrides = Overrides.resolve(plan, ImmutableList.of(new MapValueLoader(builder.build())));
+
+        assertThat(toMap(overrides))
+                .isEqualTo(ImmutableMap.of("port", "9090"));
+    }
+
+    @Test
+    public void withoutSnapshot() {
+        ValueLoader valueLoader = new PropertyValueLoader() {
+            @Override
+            public Map<String, String> snapshot() {
+                return null;
+            }
+
+            @Override
+            public Optional<PathValue> getValue(BindingPlan.Leaf leaf) {
+                return leaf.getPropertyName().equals("env")
+                        ? Optional.of(new PathValue(leaf.getPath(), "fallback", getClass()))
+                        : Optional.empty();
+            }
+        };
+        Overrides overrides = Overrides.resolve(plan, ImmutableList.of(valueLoader));
+
+        assertThat(toMap(overrides))
+                .isEqualTo(ImmutableMap.of("env", "fallback"));
+    }
+
+    @Test
+    public void elements() {
+        BindingPlan elementsPlan = BindingPlan.of(DefaultConfigReaderTest.ElementsConfig.class);
+        MapValueLoader first = new MapValueLoader(ImmutableMap.of("servers.0.host", "first", "tags.x", "invalid"));
+        MapValueLoader second = new MapValueLoader(ImmutableMap.of(
+                "servers.0.host", "second",
+                "servers.1.port", "8080",
+                "servers.0.host.name", "unrelated",
+                "pools.primary.size", "20"));
+        Overrides overrides = Overrides.resolve(elementsPlan, ImmutableList.of(first, second));
+
+        assertThat(toMap(overrides))
+                .isEqualTo(ImmutableMap.of(
+                        "servers.0.host", "first",
+                        "tags.x", "invalid",
+                        "servers.1.port", "8080",
+                        "pools.primary.size", "20"));
+    }
+
+    @Test
+    public void envElements() {
+        BindingPlan elementsPlan = BindingPlan.of(DefaultConfigReaderTest.ElementsConfig.class);
+        ValueLoader valueLoader = new EnvValueLoader() {
+            @Override
+            public Map<String, String> snapshot() {
+                return ImmutableMap.of("SERVERS_1_HOST", "host", "POOLS_PRIMARY_SIZE", "20", "TAGS_0", "x");
+            }
+        };
+        Overrides overrides = Overrides.resolve(elementsPlan, ImmutableList.of(valueLoader));
+
+        assertThat(toMap(overrides))
+                .isEqualTo(ImmutableMap.of("servers.1.host", "host", "pools.primary.size", "20", "tags.0", "x"));
+    }
+
+    private int indexOf(String propertyName) {
+        List<BindingPlan.Leaf> leaves = plan.getLeaves();
+        for (int i = 0; i < leaves.size(); i++) {
+            if (leaves.get(i).getPropertyName().equals(propertyName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(propertyName);
+    }
+
+    private static Map<String, String> toMap(Overrides overrides) {
+        return overrides.toPathValues().stream()
+                .collect(Collectors.toMap(it -> String.join(".", it.getPath()), PathValue::getValue));
+    }
+
+    private static class MapValueLoader extends PropertyValueLoader {
+        private final Map<String, String> values;
+
+        MapValueLoader(Map<String, String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Map<String, String> snapshot() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package me.geso.tinyconfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path configFile;
+    private Path dataSourceFile;
+    private Path snapshotDirectory;
+    private final List<String> includes = new ArrayList<>();
+    // run when a file is included, after it's read.
+    private Runnable onInclude = () -> {
+    };
+    private ConfigReader reader;
+
+    @Before
+    public void before() throws IOException {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        System.clearProperty("port");
+        dataSourceFile = temporaryFolder.getRoot().toPath().resolve("datasource.yml");
+        write(dataSourceFile, "uri: jdbc:h2:mem");
+        configFile = temporaryFolder.getRoot().toPath().resolve("config.yml");
+        write(configFile, "env: first\nport: 80\nreplica: !file " + dataSourceFile);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, configFile.toString());
+
+        snapshotDirectory = temporaryFolder.getRoot().toPath().resolve("snapshots");
+        reader = ConfigReaderBuilder.create()
+                .setSnapshotDirectory(snapshotDirectory)
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onInclude(String location, long bytes, long elapsedNanos) {
+                        includes.add(location);
+                        onInclude.run();
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty("port");
+    }
+
+    @Test
+    public void readSnapshot() throws Exception {
+        DefaultConfigReaderTest.ConfigFile first = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(1);
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            assertThat(files.count())
+                    .isEqualTo(1);
+        }
+
+        DefaultConfigReaderTest.ConfigFile second = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(1);
+        assertThat(second)
+                .isEqualTo(first);
+        assertThat(second.getEnv())
+                .isEqualTo("first");
+    }
+
+    @Test
+    public void readSnapshotByGeneratedBinder() throws Exception {
+        System.setProperty("port", "9090");
+        TinyConfigProcessorTest.TypesConfig first = reader.read(TinyConfigProcessorTest.TypesConfig.class);
+        TinyConfigProcessorTest.TypesConfig second = reader.read(TinyConfigProcessorTest.TypesConfig.class);
+        assertThat(includes)
+                .hasSize(1);
+        assertThat(second)
+                .isEqualTo(first);
+        assertThat(second.getPort())
+                .isEqualTo(9090);
+    }
+
+    @Test
+    public void staleOnIncludedFileChange() throws Exception {
+        reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        write(dataSourceFile, "uri: \"jdbc:mysql:\"");
+
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(2);
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:mysql:");
+    }
+
+    @Test
+    public void staleOnChangeWhileLoading() throws Exception {
+        // The modification time of the new content is older than the load, e.g. a file copied with its time.
+        long lastModified = Files.getLastModifiedTime(dataSourceFile).toMillis() - 10000;
+        onInclude = () -> {
+            try {
+                Files.write(dataSourceFile, "uri: \"jdbc:mysql:\"".getBytes(StandardCharsets.UTF_8));
+                Files.setLastModifiedTime(dataSourceFile, FileTime.fromMillis(lastModified));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            onInclude = () -> {
+            };
+        };
+        assertThat(reader.read(DefaultConfigReaderTest.ConfigFile.class).getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(2);
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:mysql:");
+    }
+
+    @Test
+    public void staleOnOverrideChange() throws Exception {
+        reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        System.setProperty("port", "9090");
+
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(2);
+        assertThat(config.getPort())
+                .isEqualTo(9090);
+    }
+
+    @Test
+    public void noSnapshotWithResource() throws Exception {
+        // Resources in jars have no modification times to check. The service file of Jackson is a YAML string.
+        write(configFile, "env: !resource META-INF/services/com.fasterxml.jackson.core.JsonFactory\nport: 80");
+        reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(2);
+        assertThat(config.getEnv())
+                .startsWith("com.fasterxml.jackson.");
+        if (Files.exists(snapshotDirectory)) {
+            try (Stream<Path> files = Files.list(snapshotDirectory)) {
+                assertThat(files.count())
+                        .isEqualTo(0);
+            }
+        }
+    }
+
+    @Test
+    public void brokenSnapshot() throws Exception {
+        reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            write(files.findFirst().get(), "broken");
+        }
+
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(includes)
+                .hasSize(2);
+        assertThat(config.getEnv())
+                .isEqualTo("first");
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        // Make the change visible even on file systems with coarse timestamps.
+        long lastModified = Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : 0;
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        if (Files.getLastModifiedTime(path).toMillis() == lastModified) {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified + 1000));
+        }
+    }
+}
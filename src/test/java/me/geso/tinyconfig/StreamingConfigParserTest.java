@@ -0,0 +1,147 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamingConfigParserTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> includes = new ArrayList<>();
+    private ConfigReader reader;
+
+    @Before
+    public void before() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_PROFILE_PROPERTY);
+        reader = ConfigReaderBuilder.create()
+                .setStreaming(true)
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onInclude(String location, long bytes, long elapsedNanos) {
+                        includes.add(location);
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty("port");
+        System.clearProperty("dataSource.uri");
+        System.clearProperty("replica.uri");
+    }
+
+    @Test
+    public void read() throws Exception {
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class, "types");
+        assertThat(config.getEnv())
+                .isEqualTo("types");
+        assertThat(config.getPort())
+                .isEqualTo(8080);
+        // Timestamps are kept as written.
+        assertThat(config.getCreatedAt())
+                .isEqualTo("2001-12-14T21:59:43.10Z");
+    }
+
+    @Test
+    public void readTypes() throws Exception {
+        TinyConfigProcessorTest.TypesConfig config = reader.read(TinyConfigProcessorTest.TypesConfig.class, "types");
+        TinyConfigProcessorTest.TypesConfig expected = ConfigReaderBuilder.create()
+                .build()
+                .read(TinyConfigProcessorTest.TypesConfig.class, "types");
+        expected.setCreatedAt("2001-12-14T21:59:43.10Z");
+        assertThat(config)
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void readIncludes() throws Exception {
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        System.setProperty("replica.uri", "jdbc:pg:replica");
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(config.getEnv())
+                .isEqualTo("shared");
+        // DATA_SOURCE_URI may be left by DefaultConfigReaderTest.
+        assertThat(config.getDataSource().getUri())
+                .startsWith("jdbc:");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:pg:replica");
+        assertThat(includes)
+                .hasSize(2);
+    }
+
+    @Test
+    public void overrideInclude() throws Exception {
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-shared.yml");
+        System.setProperty("dataSource.uri", "jdbc:pg:");
+        System.setProperty("port", "9090");
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(config.getDataSource().getUri())
+                .isEqualTo("jdbc:pg:");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:h2:mem");
+        assertThat(config.getPort())
+                .isEqualTo(9090);
+    }
+
+    @Test
+    public void overrideMissingSection() throws Exception {
+        System.setProperty("dataSource.uri", "jdbc:pg:");
+        DefaultConfigReaderTest.ConfigFile config = reader.read(DefaultConfigReaderTest.ConfigFile.class, "empty");
+        assertThat(config.getDataSource().getUri())
+                .isEqualTo("jdbc:pg:");
+    }
+
+    @Test
+    public void emptyInclude() throws Exception {
+        Path empty = write("empty.yml", "");
+        Path config = write("config.yml", "env: first\ndataSource: !file " + empty + "\nport: 80");
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+        DefaultConfigReaderTest.ConfigFile read = reader.read(DefaultConfigReaderTest.ConfigFile.class);
+        assertThat(read.getDataSource())
+                .isNull();
+        assertThat(read.getPort())
+                .isEqualTo(80);
+    }
+
+    @Test
+    public void includeCycle() throws Exception {
+        Path a = temporaryFolder.getRoot().toPath().resolve("a.yml");
+        write("a.yml", "dataSource: !file " + a);
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, a.toString());
+        assertThatThrownBy(() -> reader.read(DefaultConfigReaderTest.ConfigFile.class))
+                .isInstanceOf(ImportableConstructor.YamlImportCycleException.class)
+                .hasMessageContaining(a.toRealPath() + " -> " + a.toRealPath());
+    }
+
+    @Test
+    public void alias() throws Exception {
+        Path config = write("config.yml", "dataSource: &ds\n  uri: jdbc:h2:mem\nreplica: *ds");
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, config.toString());
+        assertThatThrownBy(() -> reader.read(DefaultConfigReaderTest.ConfigFile.class))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("Aliases");
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+}
@@ -0,0 +1,347 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import lombok.Data;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TinyConfigProcessorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void after() {
+        System.clearProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY);
+        System.clearProperty("port");
+        System.clearProperty("dataSource.uri");
+        System.clearProperty("replica.uri");
+        System.clearProperty("legacy.name");
+        System.clearProperty("blocklist");
+        System.clearProperty("tags.1");
+    }
+
+    @Test
+    public void generated() {
+        assertThat(ConfigBinders.find(TypesConfig.class))
+                .isNotNull();
+        assertThat(ConfigBinders.find(TypesConfig.DataSourceConfig.class))
+                .isNotNull();
+        // Jackson annotations need Jackson's binding.
+        assertThat(ConfigBinders.find(TypesConfig.LegacyConfig.class))
+                .isNull();
+        assertThat(ConfigBinders.find(DefaultConfigReaderTest.ConfigFile.class))
+                .isNull();
+    }
+
+    @Test
+    public void plan() {
+        assertThat(BindingPlan.of(TypesConfig.class).getLeaves())
+                .isEqualTo(BindingPlan.scan(TypesConfig.class).getLeaves());
+        assertThat(BindingPlan.of(TypesConfig.class).getLeaves())
+                .extracting(BindingPlan.Leaf::getPropertyName)
+                .contains("dataSource.uri", "legacy.name", "tags.*")
+                .doesNotContain("child.env");
+    }
+
+    @Test
+    public void bind() throws Exception {
+        DefaultConfigReader reader = (DefaultConfigReader) ConfigReaderBuilder.create()
+                .build();
+        TypesConfig config = reader.read(TypesConfig.class, "types");
+        assertThat(config.getEnv())
+                .isEqualTo("types");
+        assertThat(config.getPort())
+                .isEqualTo(8080);
+        assertThat(config.isDebug())
+                .isTrue();
+        assertThat(config.getRatio())
+                .isEqualTo(0.5);
+        assertThat(config.getBig())
+                .isEqualTo(new BigInteger("12345678901234567890"));
+        assertThat(config.getCreatedAt())
+                .isEqualTo("2001-12-14T21:59:43.100Z");
+        assertThat(config.getTags())
+                .containsExactly("a", "b");
+        // DATA_SOURCE_URI may be left by DefaultConfigReaderTest.
+        assertThat(config.getDataSource().getUri())
+                .startsWith("jdbc:");
+        assertThat(config.getReplica())
+                .isNull();
+        assertThat(config)
+                .isEqualTo(bindByReflection(reader));
+    }
+
+    @Test
+    public void bindWithOverrides() throws Exception {
+        DefaultConfigReader reader = (DefaultConfigReader) ConfigReaderBuilder.create()
+                .build();
+        System.setProperty("port", "9090");
+        System.setProperty("dataSource.uri", "jdbc:pg:");
+        System.setProperty("replica.uri", "jdbc:pg:replica");
+        System.setProperty("legacy.name", "legacy");
+        TypesConfig config = reader.read(TypesConfig.class, "types");
+        assertThat(config.getPort())
+                .isEqualTo(9090);
+        assertThat(config.getDataSource().getUri())
+                .isEqualTo("jdbc:pg:");
+        assertThat(config.getReplica().getUri())
+                .isEqualTo("jdbc:pg:replica");
+        assertThat(config.getLegacy().getName())
+                .isEqualTo("legacy");
+        assertThat(config)
+                .isEqualTo(bindByReflection(reader));
+    }
+
+    @Test
+    public void bindElementOverrides() throws Exception {
+        DefaultConfigReader reader = (DefaultConfigReader) ConfigReaderBuilder.create()
+                .build();
+        System.setProperty("tags.1", "c");
+        TypesConfig config = reader.read(TypesConfig.class, "types");
+        assertThat(config.getTags())
+                .containsExactly("a", "c");
+        assertThat(config)
+                .isEqualTo(bindByReflection(reader));
+    }
+
+    @Test
+    public void bindDataFiles() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, "src/test/resources/config-data.yml");
+        assertThat(ConfigBinders.find(DataFilesConfig.class))
+                .isNotNull();
+        assertThat(BindingPlan.of(DataFilesConfig.class).getLeaves())
+                .isEqualTo(BindingPlan.scan(DataFilesConfig.class).getLeaves());
+
+        DataFilesConfig config = reader.read(DataFilesConfig.class);
+        assertThat(config.getBlocklist().get(0))
+                .isEqualTo("192.0.2.1");
+        assertThat(config.getRateLimits().find("/api/search").get(1))
+                .isEqualTo("100");
+
+        System.setProperty("blocklist", "src/test/resources/datasource.yml");
+        assertThat(reader.read(DataFilesConfig.class).getBlocklist().get(1))
+                .isEqualTo("uri: \"jdbc:h2:mem\"");
+    }
+
+    @Test
+    public void bindInvalidValue() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        System.setProperty("port", "http");
+        assertThatThrownBy(() -> reader.read(TypesConfig.class, "types"))
+                .isInstanceOf(JsonMappingException.class)
+                .hasMessageContaining("`port`");
+    }
+
+    @Test
+    public void readLazy() throws Exception {
+        List<String> overrides = new ArrayList<>();
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .addListener(new ConfigReadListener() {
+                    @Override
+                    public void onOverride(PathValue pathValue) {
+                        overrides.add(String.join(".", pathValue.getPath()));
+                    }
+                })
+                .build();
+        System.setProperty("port", "9090");
+        System.setProperty("replica.uri", "jdbc:pg:replica");
+        TypesConfig config = reader.readLazy(TypesConfig.class, "types");
+        assertThat(config)
+                .isNotExactlyInstanceOf(TypesConfig.class);
+        assertThat(overrides)
+                .containsExactly("port");
+
+        TypesConfig.DataSourceConfig replica = config.getReplica();
+        assertThat(replica.getUri())
+                .isEqualTo("jdbc:pg:replica");
+        assertThat(overrides)
+                .containsExactly("port", "replica.uri");
+        assertThat(config.getReplica())
+                .isSameAs(replica);
+        assertThat(overrides)
+                .hasSize(2);
+
+        assertThat(config)
+                .isEqualTo(reader.read(TypesConfig.class, "types"));
+    }
+
+    @Test
+    public void readLazyConcurrently() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        TypesConfig config = reader.readLazy(TypesConfig.class, "types");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TypesConfig.DataSourceConfig>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(config::getDataSource));
+            }
+            for (Future<TypesConfig.DataSourceConfig> future : futures) {
+                assertThat(future.get())
+                        .isSameAs(config.getDataSource());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readLazySetBeforeGet() throws Exception {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        TypesConfig config = reader.readLazy(TypesConfig.class, "types");
+        config.setDataSource(null);
+        assertThat(config.getDataSource())
+                .isNull();
+        assertThat(config.getTags())
+                .containsExactly("a", "b");
+    }
+
+    @Test
+    public void readLazyInvalidValue() throws Exception {
+        Path configFile = temporaryFolder.newFile("config.yml").toPath();
+        Files.write(configFile, "env: lazy\ndataSource: jdbc".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(ConfigReaderBuilder.DEFAULT_CONFIG_FILE_PROPERTY, configFile.toString());
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        TypesConfig config = reader.readLazy(TypesConfig.class);
+        assertThat(config.getEnv())
+                .isEqualTo("lazy");
+        assertThatThrownBy(config::getDataSource)
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("`dataSource`");
+    }
+
+    @Test
+    public void readLazyWithoutBinder() {
+        ConfigReader reader = ConfigReaderBuilder.create()
+                .build();
+        assertThatThrownBy(() -> reader.readLazy(DefaultConfigReaderTest.ConfigFile.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("@TinyConfig");
+    }
+
+    @Test
+    public void compileWithoutWarnings() throws Exception {
+        // Generated in the last round, the binders would be compiled with a warning.
+        Path classes = temporaryFolder.newFolder("classes").toPath();
+        assertThat(compile(classes, "PlainConfig", "@me.geso.tinyconfig.TinyConfig\n"
+                + "public class PlainConfig {\n"
+                + "    private String env;\n"
+                + "    public String getEnv() { return env; }\n"
+                + "    public void setEnv(String env) { this.env = env; }\n"
+                + "}\n"))
+                .isEmpty();
+        assertThat(classes.resolve("PlainConfig" + ConfigBinders.SUFFIX + ".class"))
+                .exists();
+
+        // The accessors added by lombok are bound.
+        assertThat(compile(classes, "LombokConfig", "@me.geso.tinyconfig.TinyConfig @lombok.Data\n"
+                + "public class LombokConfig {\n"
+                + "    private String env;\n"
+                + "    private Child child;\n"
+                + "    @lombok.Data public static class Child { private int port; }\n"
+                + "}\n"))
+                .isEmpty();
+        assertThat(classes.resolve("LombokConfig" + ConfigBinders.SUFFIX + ".class"))
+                .exists();
+        assertThat(classes.resolve("LombokConfig$Child" + ConfigBinders.SUFFIX + ".class"))
+                .exists();
+    }
+
+    /**
+     * Compile the class with the processors in the class path, like the builds of the applications do.
+     *
+     * @return the warnings.
+     */
+    private List<String> compile(Path classes, String name, String source) throws IOException {
+        Path file = temporaryFolder.newFolder(name).toPath().resolve(name + ".java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.toString(), "-Xlint:all", "-Xlint:-options");
+            assertThat(compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(file.toFile())).call())
+                    .isTrue();
+        }
+        List<String> warnings = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.WARNING || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                warnings.add(diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+        return warnings;
+    }
+
+    private static TypesConfig bindByReflection(DefaultConfigReader reader) throws Exception {
+        Object tree = reader.readInternal("types").getTree();
+        List<PathValue> pathValues = reader.scanValues(TypesConfig.class);
+        return reader.bindTree(reader.rewriteValues(tree, pathValues), TypesConfig.class);
+    }
+
+    @TinyConfig
+    @Data
+    public static class DataFilesConfig {
+        private MappedLines blocklist;
+        private MappedCsv rateLimits;
+    }
+
+    @TinyConfig
+    @Data
+    public static class TypesConfig {
+        private String env;
+        private int port;
+        private Integer timeout;
+        private boolean debug;
+        private double ratio;
+        private BigInteger big;
+        private String createdAt;
+        private List<String> tags = Arrays.asList("default");
+        private DataSourceConfig dataSource;
+        private DataSourceConfig replica;
+        private LegacyConfig legacy;
+        private TypesConfig child;
+
+        @Data
+        public static class DataSourceConfig {
+            private String uri;
+        }
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        @Data
+        public static class LegacyConfig {
+            private String name;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package me.geso.tinyconfig;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.junit.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class YamlTreeConverterTest {
+    @Test
+    public void sameAsDumpAndParse() throws Exception {
+        Yaml yaml = new Yaml();
+        Object config;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("config-types.yml")) {
+            config = yaml.load(inputStream);
+        }
+
+        JsonNode expected = new ObjectMapper(new YAMLFactory()).readTree(yaml.dump(config));
+        assertThat(YamlTreeConverter.toTree(config))
+                .isEqualTo(expected);
+    }
+}